@@ -0,0 +1,39 @@
+package fr.polytech.refactoring.actions;
+
+import com.intellij.lang.refactoring.RefactoringSupportProvider;
+import com.intellij.refactoring.RefactoringActionHandler;
+import com.intellij.refactoring.actions.BasePlatformRefactoringAction;
+import fr.polytech.refactoring.memberPullUp.PullUpGenAllHandler;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class PullUpGenAllAction extends BasePlatformRefactoringAction {
+  public PullUpGenAllAction() {
+    setInjectedContext(true);
+  }
+
+  @Override
+  public boolean isAvailableInEditorOnly() {
+    return false;
+  }
+
+  @Override
+  protected RefactoringActionHandler getRefactoringHandler(@NotNull RefactoringSupportProvider provider) {
+    return new PullUpGenAllHandler();
+  }
+}
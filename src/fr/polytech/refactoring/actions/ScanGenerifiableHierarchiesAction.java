@@ -0,0 +1,163 @@
+package fr.polytech.refactoring.actions;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowAnchor;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.AllClassesSearch;
+import com.intellij.psi.util.PsiFormatUtil;
+import com.intellij.psi.util.PsiFormatUtilBase;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.util.Processor;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
+import fr.polytech.refactoring.ui.GenerifiableHierarchiesPanel;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Scans the project for the abstract classes and interfaces whose direct subclasses have methods
+ * that could be pulled up with generics (see CompatibilityMatrix.canGenMember), without opening any dialog.
+ *
+ * The superclasses are analysed concurrently (one read action per superclass, which gives way to the write actions
+ * and is restarted after them) and the results are added to a table in the "Generifiable Hierarchies" tool window as they are found.
+ * The methods which already override a method (toString, an interface method...) are not reported.
+ */
+public class ScanGenerifiableHierarchiesAction extends AnAction {
+
+    private static final String TOOL_WINDOW_ID = "Generifiable Hierarchies";
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        final Project project = e.getProject();
+        if (project == null) return;
+
+        final GenerifiableHierarchiesPanel panel = new GenerifiableHierarchiesPanel();
+        showPanel(project, panel);
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Scanning for generifiable hierarchies", true) {
+            public void run(@NotNull final ProgressIndicator indicator) {
+                indicator.setText("Collecting abstract classes and interfaces...");
+                final List<PsiClass> superClasses = ReadAction.compute(new ThrowableComputable<List<PsiClass>, RuntimeException>() {
+                    public List<PsiClass> compute() {
+                        return findCandidateSuperClasses(project, indicator);
+                    }
+                });
+
+                indicator.setText("Analysing " + superClasses.size() + " hierarchies...");
+                indicator.setIndeterminate(false);
+                final AtomicInteger done = new AtomicInteger();
+                JobLauncher.getInstance().invokeConcurrentlyUnderProgress(superClasses, indicator, false, false, new Processor<PsiClass>() {
+                    public boolean process(final PsiClass superClass) {
+                        final List<GenerifiableHierarchiesPanel.Row> rows = new ArrayList<GenerifiableHierarchiesPanel.Row>();
+                        // the read action gives way to the write actions (typing is not blocked), and the hierarchy is analysed again after them
+                        while (!ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(new Runnable() {
+                            public void run() {
+                                rows.clear();
+                                if (superClass.isValid()) rows.addAll(analyse(superClass));
+                            }
+                        }, new SensitiveProgressWrapper(indicator))) {
+                            indicator.checkCanceled();
+                            ProgressIndicatorUtils.yieldToPendingWriteActions();
+                        }
+                        if (!rows.isEmpty()) {
+                            ApplicationManager.getApplication().invokeLater(new Runnable() {
+                                public void run() {
+                                    for (GenerifiableHierarchiesPanel.Row row : rows) panel.addRow(row);
+                                }
+                            }, project.getDisposed());
+                        }
+                        indicator.setFraction((double) done.incrementAndGet() / superClasses.size());
+                        return true;
+                    }
+                });
+            }
+        });
+    }
+
+
+    private static List<PsiClass> findCandidateSuperClasses(Project project, final ProgressIndicator indicator) {
+        final List<PsiClass> result = new ArrayList<PsiClass>();
+        AllClassesSearch.search(GlobalSearchScope.projectScope(project), project).forEach(new Processor<PsiClass>() {
+            public boolean process(PsiClass c) {
+                indicator.checkCanceled();
+                if ((c.isInterface() || c.hasModifierProperty(PsiModifier.ABSTRACT)) && !c.isAnnotationType())
+                    result.add(c);
+                return true;
+            }
+        });
+        return result;
+    }
+
+    /** Runs in a read action. A group is a method of the first sister class with a compatible method in all the others. */
+    private static List<GenerifiableHierarchiesPanel.Row> analyse(PsiClass superClass) {
+        final List<GenerifiableHierarchiesPanel.Row> rows = new ArrayList<GenerifiableHierarchiesPanel.Row>();
+        final CompatibilityMatrix matrix = CompatibilityMatrix.forSuperClass(superClass);
+        final List<PsiClass> sisterClasses = matrix.getSisterClasses();
+        if (sisterClasses.size() < 2) return rows; // nothing to factorize
+
+        final String superClassName = superClass.getQualifiedName() != null ? superClass.getQualifiedName() : superClass.getName();
+        for (PsiMethod m : sisterClasses.get(0).getMethods()) {
+            ProgressManager.checkCanceled();
+            if (m.isConstructor() || m.hasModifierProperty(PsiModifier.PRIVATE) || m.hasModifierProperty(PsiModifier.STATIC)) continue;
+            if (m.findSuperMethods().length > 0) continue; // toString, an interface method... : already declared above the class
+            if (matrix.canGenMember(new MemberInfo(m))) {
+                final String text = PsiFormatUtil.formatMethod(m, PsiSubstitutor.EMPTY,
+                        PsiFormatUtilBase.SHOW_NAME | PsiFormatUtilBase.SHOW_PARAMETERS, PsiFormatUtilBase.SHOW_TYPE);
+                rows.add(new GenerifiableHierarchiesPanel.Row(superClassName, m, text, sisterClasses.size()));
+            }
+        }
+        return rows;
+    }
+
+    private static void showPanel(Project project, GenerifiableHierarchiesPanel panel) {
+        final ToolWindowManager manager = ToolWindowManager.getInstance(project);
+        ToolWindow toolWindow = manager.getToolWindow(TOOL_WINDOW_ID);
+        if (toolWindow == null) {
+            toolWindow = manager.registerToolWindow(TOOL_WINDOW_ID, true, ToolWindowAnchor.BOTTOM, project, true);
+        }
+        final Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "Scan", false);
+        toolWindow.getContentManager().addContent(content);
+        toolWindow.getContentManager().setSelectedContent(content);
+        toolWindow.activate(null);
+    }
+}
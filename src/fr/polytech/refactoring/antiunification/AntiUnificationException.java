@@ -0,0 +1,27 @@
+package fr.polytech.refactoring.antiunification;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/** Raised when a column of types cannot be anti-unified (for instance when it contains different primitive types). */
+public class AntiUnificationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AntiUnificationException(String message) {
+        super(message);
+    }
+}
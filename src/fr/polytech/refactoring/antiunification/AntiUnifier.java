@@ -0,0 +1,170 @@
+package fr.polytech.refactoring.antiunification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Anti-unification of method profiles, on type terms (no PSI needed).
+ *
+ * If we have the following list of methods to consider :
+ *   in A :   TA0 m (TA1, TA2, TA3)
+ *   in B :   TB0 m (TB1, TB2, TB3)
+ *   in C :   TC0 m (TC1, TC2, TC3)
+ *  we have to unify types in column :
+ *  TA0 with TB0 and TC0, TA1 with TB1 and TC1, and so on.
+ *
+ * A column is generalized by the type variable which already has that instantiation in the dependent-substitution,
+ * or by the common type, or by a type built with the same constructor (array, class type) over the generalized
+ * sub-columns, or else by a fresh type variable which is added to the dependent-substitution.
+ *
+ * An anti-unifier is a session : its memo (column -> generalized type) is kept between the calls,
+ * so the same column always gets the same type variable. It is not thread-safe.
+ *
+ * The columns are arrays of terms indexed by the ordinal of the classes in the dependent-substitution.
+ * They are built in scratch buffers (one per nesting level, reused from one column to the next) :
+ * a column is only copied when it is stored in the memo or in the dependent-substitution.
+ *
+ * @param <C> the classes in which the methods are found.
+ */
+public class AntiUnifier<C> {
+
+    private final TermFactory myFactory;
+    private final TermDependentSubstitution<C> mySubstitution;
+    private final Collection<String> myBoundNames;
+    private final Map<Column, TypeTerm> myMemo = new HashMap<Column, TypeTerm>();
+    private final Column myProbe = new Column(new TypeTerm[0]);
+    private final List<TypeTerm[]> myScratch = new ArrayList<TypeTerm[]>(); // nesting level -> column buffer
+
+
+    /** The dependent-substitution gives the classes and the previously existing instantiations of type variables, for reuse ;
+     *  the fresh type variables are added to it. The fresh names are chosen out of boundNames and added to it. */
+    public AntiUnifier(TermFactory factory, TermDependentSubstitution<C> substitution, Collection<String> boundNames) {
+        myFactory = factory;
+        mySubstitution = substitution;
+        myBoundNames = boundNames;
+    }
+
+    public TermFactory getFactory() {
+        return myFactory;
+    }
+
+    public TermDependentSubstitution<C> getSubstitution() {
+        return mySubstitution;
+    }
+
+
+    /** Compute the anti-unifier of the profiles of a list of methods.
+     *  profiles[k] is the profile of the method in the class of ordinal k (see TermDependentSubstitution.indexOf) :
+     *  the return type followed by the parameter types.
+     *  Returns the generalized type for each position (-1 for the return type). */
+    public TermSubstitution antiunify(TypeTerm[][] profiles, String baseNameForTypeVariables) {
+        final int nbClasses = mySubstitution.getClasses().size();
+        if (profiles.length != nbClasses) throw new AntiUnificationException("A method is expected in each of the " + nbClasses + " classes.");
+        assert (nbClasses > 0);
+
+        final int width = profiles[0].length;
+        for (TypeTerm[] profile : profiles) {
+            if (profile.length != width) throw new AntiUnificationException("The methods do not have the same number of parameters.");
+        }
+
+        final TermSubstitution result = new TermSubstitution(width - 1);
+        final TypeTerm[] column = scratch(0);
+        for (int i = 0; i < width; i++) {
+            for (int k = 0; k < nbClasses; k++) column[k] = profiles[k][i];
+            result.put(i - 1, antiunifyColumn(column, 0, baseNameForTypeVariables, i - 1));
+        }
+        return result;
+    }
+
+
+    /** Generalize a column of types (one type in each class, indexed by ordinal). The column can be a scratch buffer of the given level :
+     *  it is not modified, and copied if it has to be kept. The position is only used to name the fresh variables. */
+    public TypeTerm antiunifyColumn(TypeTerm[] column, int level, String baseNameForTypeVariables, int pos) {
+        final TypeTerm existingVariable = mySubstitution.getVariableFor(column);
+        if (existingVariable != null) return existingVariable;
+
+        final TypeTerm known = myMemo.get(myProbe.set(column));
+        if (known != null) return known;
+
+        final TypeTerm result = generalize(column, level, baseNameForTypeVariables, pos);
+        myMemo.put(new Column(column.clone()), result);
+        return result;
+    }
+
+    private TypeTerm generalize(TypeTerm[] column, int level, String baseNameForTypeVariables, int pos) {
+        final TypeTerm first = column[0];
+
+        boolean allEqual = true, anyPrimitive = first.isPrimitive(), allArrays = first.isArray(), allSameClass = first.isClass();
+        for (int k = 1; k < column.length; k++) {
+            final TypeTerm t = column[k];
+            if (t != first) allEqual = false; // interned terms
+            if (t.isPrimitive()) anyPrimitive = true;
+            if (!t.isArray()) allArrays = false;
+            if (!t.isClass() || !t.getName().equals(first.getName()) || t.getArgumentCount() != first.getArgumentCount()) allSameClass = false;
+        }
+
+        if (allEqual) return first;
+
+        if (anyPrimitive) throw new AntiUnificationException("Cannot generify primitive type.");
+
+        if (allArrays) {
+            final TypeTerm[] components = scratch(level + 1);
+            for (int k = 0; k < column.length; k++) components[k] = column[k].getComponentType();
+            return myFactory.array(antiunifyColumn(components, level + 1, baseNameForTypeVariables, pos));
+        }
+
+        if (allSameClass) { // same class and same number of type arguments : generalize each argument
+            final TypeTerm[] arguments = new TypeTerm[first.getArgumentCount()];
+            final TypeTerm[] argumentColumn = scratch(level + 1);
+            for (int i = 0; i < arguments.length; i++) {
+                for (int k = 0; k < column.length; k++) argumentColumn[k] = column[k].getArgument(i);
+                arguments[i] = antiunifyColumn(argumentColumn, level + 1, baseNameForTypeVariables, pos);
+            }
+            return myFactory.classType(first.getName(), arguments);
+        }
+
+        return freshVariable(column, baseNameForTypeVariables, pos);
+    }
+
+    private TypeTerm freshVariable(TypeTerm[] column, String baseNameForTypeVariables, int pos) {
+        final String fresh = freshName(pos, baseNameForTypeVariables, myBoundNames);
+        myBoundNames.add(fresh);
+        final TypeTerm variable = myFactory.variable(fresh);
+        mySubstitution.put(variable, column.clone());
+        return variable;
+    }
+
+    /** The column buffer of a nesting level. */
+    private TypeTerm[] scratch(int level) {
+        while (myScratch.size() <= level) myScratch.add(new TypeTerm[mySubstitution.getClasses().size()]);
+        return myScratch.get(level);
+    }
+
+
+    /** TnameRET for the return type, Tname0, Tname1... for the parameters, with x's added until the name is not bound. */
+    public static String freshName(int pos, String name, Collection<String> boundNames) {
+        String tentative = (pos == -1) ? ("T" + name + "RET") : ("T" + name + pos);
+        while (boundNames.contains(tentative)) tentative = tentative + "x";
+        return tentative;
+    }
+}
@@ -0,0 +1,58 @@
+package fr.polytech.refactoring.antiunification;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * A column of terms (one term for each class, indexed by the ordinal of the class), used as a key in the hash tables
+ * of the anti-unifier and of the dependent-substitution. The terms are hash-consed, so they are compared by identity.
+ *
+ * A key can be a probe : it then wraps a scratch buffer for a lookup ; a stored key wraps its own array.
+ */
+final class Column {
+    private TypeTerm[] myTerms;
+    private int myHash;
+
+    Column(TypeTerm[] terms) {
+        set(terms);
+    }
+
+    /** Makes this key wrap the given terms (for a probe). */
+    Column set(TypeTerm[] terms) {
+        myTerms = terms;
+        int h = 1;
+        for (TypeTerm t : terms) h = 31 * h + System.identityHashCode(t);
+        myHash = h;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Column)) return false;
+        final Column c = (Column) o;
+        if (myHash != c.myHash || myTerms.length != c.myTerms.length) return false;
+        for (int i = 0; i < myTerms.length; i++) {
+            if (myTerms[i] != c.myTerms[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return myHash;
+    }
+}
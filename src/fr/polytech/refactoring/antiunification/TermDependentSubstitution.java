@@ -0,0 +1,93 @@
+package fr.polytech.refactoring.antiunification;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * How each type variable is instantiated in each class C (the PSI-independent counterpart of DependentSubstitution).
+ * Exemple : [ T1 : {in A replaced by C ; in B replaced by D}, T2 : {in A replaced by E ; in B replaced by C}]
+ *
+ * The classes are fixed at creation : an instantiation is an array of terms indexed by the ordinal of the class (see indexOf).
+ * The variables are kept in insertion order, and a reverse index gives the variable which has a given instantiation.
+ * The instantiation arrays must not be modified once they are in the substitution.
+ */
+public class TermDependentSubstitution<C> {
+
+    private final List<C> myClasses;
+    private final Map<C, Integer> myOrdinals = new HashMap<C, Integer>();
+    private final Map<TypeTerm, TypeTerm[]> myInstantiations = new LinkedHashMap<TypeTerm, TypeTerm[]>();
+    private final Map<Column, TypeTerm> myReverseIndex = new HashMap<Column, TypeTerm>();
+    private final Column myProbe = new Column(new TypeTerm[0]);
+
+
+    public TermDependentSubstitution(List<C> classes) {
+        myClasses = Collections.unmodifiableList(classes);
+        for (int i = 0; i < classes.size(); i++) {
+            if (myOrdinals.put(classes.get(i), i) != null) throw new IllegalArgumentException("duplicate class " + classes.get(i));
+        }
+    }
+
+    public List<C> getClasses() {
+        return myClasses;
+    }
+
+    /** The ordinal of the class, or -1. */
+    public int indexOf(C c) {
+        final Integer i = myOrdinals.get(c);
+        return i == null ? -1 : i;
+    }
+
+
+    /** When several variables have the same instantiation, the reverse index keeps the first one. */
+    public void put(TypeTerm variable, TypeTerm[] instantiation) {
+        assert (variable.isVariable());
+        assert (!myInstantiations.containsKey(variable));
+        assert (instantiation.length == myClasses.size());
+        myInstantiations.put(variable, instantiation);
+        final Column key = new Column(instantiation);
+        if (!myReverseIndex.containsKey(key)) myReverseIndex.put(key, variable);
+    }
+
+    public TypeTerm[] get(TypeTerm variable) {
+        return myInstantiations.get(variable);
+    }
+
+    public boolean contains(TypeTerm variable) {
+        return myInstantiations.containsKey(variable);
+    }
+
+    /** Returns a variable which has exactly that instantiation, or null. The array is not kept (it can be a scratch buffer). */
+    public TypeTerm getVariableFor(TypeTerm[] instantiation) {
+        return myReverseIndex.get(myProbe.set(instantiation));
+    }
+
+    /** The variables, in insertion order. */
+    public Set<TypeTerm> getVariables() {
+        return Collections.unmodifiableSet(myInstantiations.keySet());
+    }
+
+    public int size() {
+        return myInstantiations.size();
+    }
+}
@@ -0,0 +1,73 @@
+package fr.polytech.refactoring.antiunification;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Builds the type terms and interns them (hash-consing) : the factory returns the same object
+ * for equal terms. Terms from different factories must not be mixed.
+ * A factory can be shared by several threads.
+ */
+public class TermFactory {
+
+    static final String ARRAY = "[]";
+    static final String ELLIPSIS = "...";
+
+    private final ConcurrentMap<TypeTerm, TypeTerm> myTable = new ConcurrentHashMap<TypeTerm, TypeTerm>();
+
+
+    public TypeTerm primitive(String name) {
+        return intern(new TypeTerm(TypeTerm.Kind.PRIMITIVE, name, TypeTerm.NO_ARGUMENTS));
+    }
+
+    /** A class type (raw when there is no argument). The id identifies the class. */
+    public TypeTerm classType(String id, TypeTerm... arguments) {
+        return intern(new TypeTerm(TypeTerm.Kind.CLASS, id, arguments.length == 0 ? TypeTerm.NO_ARGUMENTS : arguments.clone()));
+    }
+
+    public TypeTerm array(TypeTerm component) {
+        return intern(new TypeTerm(TypeTerm.Kind.ARRAY, ARRAY, new TypeTerm[]{component}));
+    }
+
+    /** The type of a varargs parameter. */
+    public TypeTerm ellipsis(TypeTerm component) {
+        return intern(new TypeTerm(TypeTerm.Kind.ARRAY, ELLIPSIS, new TypeTerm[]{component}));
+    }
+
+    public TypeTerm variable(String name) {
+        return intern(new TypeTerm(TypeTerm.Kind.VARIABLE, name, TypeTerm.NO_ARGUMENTS));
+    }
+
+    /** A type which is not decomposed (wildcard, unresolved type...). Two such terms are equal when their texts are equal. */
+    public TypeTerm other(String text) {
+        return intern(new TypeTerm(TypeTerm.Kind.OTHER, text, TypeTerm.NO_ARGUMENTS));
+    }
+
+
+    /** Number of distinct terms built by this factory. */
+    public int size() {
+        return myTable.size();
+    }
+
+    private TypeTerm intern(TypeTerm t) {
+        final TypeTerm existing = myTable.putIfAbsent(t, t);
+        return existing == null ? t : existing;
+    }
+}
@@ -0,0 +1,41 @@
+package fr.polytech.refactoring.antiunification;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/** The anti-unifier of a method profile : position (-1 for the return type, i for the i-th parameter) -> generalized type.
+ *  This is the PSI-independent counterpart of ParamSubstitution. */
+public class TermSubstitution {
+
+    private final TypeTerm[] myTerms; // position + 1 -> generalized type
+
+    public TermSubstitution(int parameterCount) {
+        myTerms = new TypeTerm[parameterCount + 1];
+    }
+
+    public int getParameterCount() {
+        return myTerms.length - 1;
+    }
+
+    public TypeTerm get(int pos) {
+        return myTerms[pos + 1];
+    }
+
+    public void put(int pos, TypeTerm t) {
+        myTerms[pos + 1] = t;
+    }
+}
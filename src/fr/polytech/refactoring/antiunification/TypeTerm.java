@@ -0,0 +1,110 @@
+package fr.polytech.refactoring.antiunification;
+
+import java.util.Arrays;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * An immutable type, independent of the PSI : a primitive type, an array, a class type
+ * with its type arguments, a type variable, or some other type known only by its text (wildcards...).
+ *
+ * Terms are hash-consed by a TermFactory : two equal terms built by the same factory are
+ * the same object, so comparing terms (and the columns of terms) is cheap.
+ * Class types are identified by an id given by the client (usually the qualified name).
+ */
+public final class TypeTerm {
+
+    public enum Kind { PRIMITIVE, CLASS, ARRAY, VARIABLE, OTHER }
+
+    static final TypeTerm[] NO_ARGUMENTS = new TypeTerm[0];
+
+    private final Kind myKind;
+    private final String myName;          // primitive name, class id, variable name, text ; for arrays : "[]" or "..." (varargs)
+    private final TypeTerm[] myArguments; // type arguments of a class type, component type of an array
+    private final int myHash;
+
+    TypeTerm(Kind kind, String name, TypeTerm[] arguments) {
+        myKind = kind;
+        myName = name;
+        myArguments = arguments;
+        // the arguments are interned : their identity hash would do, but a structural hash is stable between sessions.
+        myHash = 31 * (31 * kind.hashCode() + name.hashCode()) + Arrays.hashCode(arguments);
+    }
+
+    public Kind getKind() { return myKind; }
+
+    public String getName() { return myName; }
+
+    public int getArgumentCount() { return myArguments.length; }
+
+    public TypeTerm getArgument(int i) { return myArguments[i]; }
+
+    public TypeTerm getComponentType() {
+        assert (myKind == Kind.ARRAY);
+        return myArguments[0];
+    }
+
+    public boolean isPrimitive() { return myKind == Kind.PRIMITIVE; }
+
+    public boolean isArray() { return myKind == Kind.ARRAY; }
+
+    public boolean isClass() { return myKind == Kind.CLASS; }
+
+    public boolean isVariable() { return myKind == Kind.VARIABLE; }
+
+    /** Varargs parameter (String...) : an array which is not equal to the plain array (String[]). */
+    public boolean isEllipsis() { return myKind == Kind.ARRAY && TermFactory.ELLIPSIS.equals(myName); }
+
+
+    /* The arguments are compared by identity since they are interned.
+       Once interned, equal terms are identical and this is only used by the intern table. */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TypeTerm)) return false;
+        final TypeTerm t = (TypeTerm) o;
+        if (myHash != t.myHash || myKind != t.myKind || !myName.equals(t.myName) || myArguments.length != t.myArguments.length) return false;
+        for (int i = 0; i < myArguments.length; i++) {
+            if (myArguments[i] != t.myArguments[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return myHash;
+    }
+
+    @Override
+    public String toString() {
+        switch (myKind) {
+            case ARRAY:
+                return myArguments[0] + (isEllipsis() ? "..." : "[]");
+            case CLASS:
+                if (myArguments.length == 0) return myName;
+                final StringBuilder b = new StringBuilder(myName).append('<');
+                for (int i = 0; i < myArguments.length; i++) {
+                    if (i > 0) b.append(", ");
+                    b.append(myArguments[i]);
+                }
+                return b.append('>').toString();
+            default:
+                return myName;
+        }
+    }
+}
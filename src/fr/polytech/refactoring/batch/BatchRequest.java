@@ -0,0 +1,204 @@
+package fr.polytech.refactoring.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import com.intellij.psi.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * One line of a batch request file : pull up a member of a source class into a target superclass,
+ * with its result (filled by PullUpGenBatchRunner).
+ *
+ * The member is given by its name, optionally followed by its parameter types : "get" or "get(int, java.lang.String)".
+ * The request file is either a JSON array of objects with the keys sourceClass, member and targetSuperClass,
+ * or a CSV file with these three columns (a header line starting with "sourceClass" is skipped, fields can be quoted).
+ */
+public class BatchRequest {
+
+    @SerializedName("sourceClass")
+    private String mySourceClass;
+    @SerializedName("member")
+    private String myMember;
+    @SerializedName("targetSuperClass")
+    private String myTargetSuperClass;
+
+    // Results
+    private transient String myFailure;          // null when the member has been pulled up
+    private transient long myAnalysisMillis;     // resolution and compatibility analysis of this request
+    private transient long myRefactoringMillis;  // the refactoring of the whole group (shared by the requests of the group)
+
+    public BatchRequest(String sourceClass, String member, String targetSuperClass) {
+        mySourceClass = sourceClass;
+        myMember = member;
+        myTargetSuperClass = targetSuperClass;
+    }
+
+    public String getSourceClass() { return mySourceClass; }
+
+    public String getMember() { return myMember; }
+
+    public String getTargetSuperClass() { return myTargetSuperClass; }
+
+    @Nullable
+    public String getFailure() { return myFailure; }
+
+    void setFailure(String failure) { myFailure = failure; }
+
+    void setAnalysisMillis(long millis) { myAnalysisMillis = millis; }
+
+    void setRefactoringMillis(long millis) { myRefactoringMillis = millis; }
+
+
+    /* ------ Member lookup ------ */
+
+    /** The member of c designated by this request, or null. Fails when the name is overloaded and no parameter types are given. */
+    @Nullable
+    PsiMember findMember(@NotNull PsiClass c) {
+        final int paren = myMember.indexOf('(');
+        final String name = (paren < 0 ? myMember : myMember.substring(0, paren)).trim();
+
+        if (paren < 0) {
+            final PsiMethod[] methods = c.findMethodsByName(name, false);
+            if (methods.length > 1) throw new IllegalArgumentException("overloaded method, give the parameter types : " + name);
+            if (methods.length == 1) return methods[0];
+            return c.findFieldByName(name, false);
+        }
+
+        final List<String> types = splitParameterTypes(myMember.substring(paren + 1, myMember.lastIndexOf(')')));
+        for (PsiMethod m : c.findMethodsByName(name, false)) {
+            final PsiParameter[] parameters = m.getParameterList().getParameters();
+            if (parameters.length != types.size()) continue;
+            boolean same = true;
+            for (int i = 0; i < parameters.length && same; i++) {
+                final PsiType t = parameters[i].getType();
+                same = sameTypeText(types.get(i), t.getCanonicalText()) || sameTypeText(types.get(i), t.getPresentableText());
+            }
+            if (same) return m;
+        }
+        return null;
+    }
+
+    private static boolean sameTypeText(String t1, String t2) {
+        return t1.replace(" ", "").equals(t2.replace(" ", ""));
+    }
+
+    /** Splits on the commas which are not inside type arguments. */
+    private static List<String> splitParameterTypes(String s) {
+        final List<String> result = new ArrayList<String>();
+        if (s.trim().isEmpty()) return result;
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char ch = s.charAt(i);
+            if (ch == '<') depth++;
+            else if (ch == '>') depth--;
+            else if (ch == ',' && depth == 0) {
+                result.add(s.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        result.add(s.substring(start).trim());
+        return result;
+    }
+
+
+    /* ------ Request and result files ------ */
+
+    @NotNull
+    public static List<BatchRequest> read(@NotNull File file) throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+        try {
+            if (file.getName().endsWith(".json")) {
+                final BatchRequest[] requests = new Gson().fromJson(reader, BatchRequest[].class);
+                return requests == null ? new ArrayList<BatchRequest>() : new ArrayList<BatchRequest>(Arrays.asList(requests));
+            }
+            return readCsv(new BufferedReader(reader));
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private static List<BatchRequest> readCsv(BufferedReader reader) throws IOException {
+        final List<BatchRequest> result = new ArrayList<BatchRequest>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("sourceClass")) continue;
+            final List<String> fields = splitCsvLine(line);
+            if (fields.size() != 3) throw new IOException("line " + lineNumber + " : 3 fields expected, found " + fields.size());
+            result.add(new BatchRequest(fields.get(0), fields.get(1), fields.get(2)));
+        }
+        return result;
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        final List<String> fields = new ArrayList<String>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char ch = line.charAt(i);
+            if (ch == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') { field.append('"'); i++; }
+                else quoted = !quoted;
+            }
+            else if (ch == ',' && !quoted) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            }
+            else field.append(ch);
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    public static void writeResults(@NotNull List<BatchRequest> requests, @NotNull File file) throws IOException {
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        try {
+            out.println("sourceClass,member,targetSuperClass,status,analysisMillis,refactoringMillis,failure");
+            for (BatchRequest r : requests) {
+                out.println(quote(r.mySourceClass) + "," + quote(r.myMember) + "," + quote(r.myTargetSuperClass) + ","
+                        + (r.myFailure == null ? "OK" : "FAILED") + ","
+                        + r.myAnalysisMillis + "," + r.myRefactoringMillis + ","
+                        + quote(r.myFailure == null ? "" : r.myFailure));
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\"", "\"\"").replace('\n', ' ') + "\"";
+    }
+
+    @Override
+    public String toString() {
+        return mySourceClass + "." + myMember + " -> " + myTargetSuperClass;
+    }
+}
@@ -0,0 +1,255 @@
+package fr.polytech.refactoring.batch;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.refactoring.util.DocCommentPolicy;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import com.intellij.util.containers.MultiMap;
+import fr.polytech.refactoring.genUtils.AmbiguousOverloading;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
+import fr.polytech.refactoring.memberPullUp.JavaPullUpGenHandler;
+import fr.polytech.refactoring.memberPullUp.PullUpGenProcessor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Runs the pull-up-gen refactoring for a list of batch requests, without any dialog.
+ *
+ * The requests are grouped by target superclass and each group is pulled up by a single PullUpGenProcessor,
+ * which shares the sister classes and the compatibility analysis (CompatibilityMatrix) of the group.
+ * The members requested in different sister classes are mapped to the compatible members of the first source class of the group.
+ * The conflicts that the dialog would show (see removeConflictingMembers) are recorded as failures of the requests concerned.
+ * Must not be called in the event dispatch thread (the analyses are done in read actions, the refactorings in the EDT).
+ */
+public class PullUpGenBatchRunner {
+    private static final Logger LOG = Logger.getInstance(PullUpGenBatchRunner.class);
+
+    private final Project myProject;
+    private final boolean mySearchDuplicates;
+
+    public PullUpGenBatchRunner(@NotNull Project project, boolean searchDuplicates) {
+        myProject = project;
+        mySearchDuplicates = searchDuplicates;
+    }
+
+    /** Fills the results of the requests. */
+    public void run(@NotNull List<BatchRequest> requests) {
+        final Map<String, List<BatchRequest>> groups = new LinkedHashMap<String, List<BatchRequest>>();
+        for (BatchRequest r : requests) {
+            List<BatchRequest> group = groups.get(r.getTargetSuperClass());
+            if (group == null) {
+                group = new ArrayList<BatchRequest>();
+                groups.put(r.getTargetSuperClass(), group);
+            }
+            group.add(r);
+        }
+
+        for (Map.Entry<String, List<BatchRequest>> group : groups.entrySet()) {
+            LOG.info("Pull up into " + group.getKey() + " (" + group.getValue().size() + " requests)");
+            runGroup(group.getKey(), group.getValue());
+        }
+
+        ApplicationManager.getApplication().invokeAndWait(new Runnable() {
+            public void run() {
+                FileDocumentManager.getInstance().saveAllDocuments();
+            }
+        });
+    }
+
+
+    /** The analysed group : the members to pull up and the requests they come from. */
+    private static class Group {
+        PsiClass mySourceClass;
+        PsiClass myTargetClass;
+        CompatibilityMatrix myMatrix;
+        final Map<PsiMember, MemberInfo> myMembers = new LinkedHashMap<PsiMember, MemberInfo>();
+        final List<BatchRequest> myAccepted = new ArrayList<BatchRequest>();
+        final Map<BatchRequest, PsiMethod> myRequestMethods = new HashMap<BatchRequest, PsiMethod>(); // the member pulled up for each accepted request
+    }
+
+    private void runGroup(final String targetName, final List<BatchRequest> requests) {
+        final Group group = ReadAction.compute(new ThrowableComputable<Group, RuntimeException>() {
+            public Group compute() {
+                return analyseGroup(targetName, requests);
+            }
+        });
+        if (group.myMembers.isEmpty()) return;
+
+        final long start = System.nanoTime();
+        final CountDownLatch duplicatesSearched = new CountDownLatch(1);
+        final boolean[] refactored = new boolean[1];
+        ApplicationManager.getApplication().invokeAndWait(new Runnable() {
+            public void run() {
+                final Collection<MemberInfo> infos = group.myMembers.values();
+                final PullUpGenProcessor processor = new PullUpGenProcessor(group.mySourceClass, group.myTargetClass,
+                        infos.toArray(new MemberInfo[infos.size()]), new DocCommentPolicy(DocCommentPolicy.ASIS), group.myMatrix);
+                processor.setPreviewUsages(false);
+                processor.setSearchDuplicates(mySearchDuplicates);
+                processor.setReportDuplicatesOnly(true); // no replacement without a user to confirm it
+                processor.setDuplicatesSearchFinished(new Runnable() {
+                    public void run() {
+                        duplicatesSearched.countDown();
+                    }
+                });
+                try {
+                    processor.run();
+                    refactored[0] = true;
+                }
+                catch (RuntimeException e) { // IncorrectOperationException from the helpers
+                    LOG.warn("Pull up into " + targetName + " failed", e);
+                    for (BatchRequest r : group.myAccepted) r.setFailure("refactoring failed : " + e.getMessage());
+                }
+            }
+        });
+        final long millis = (System.nanoTime() - start) / 1000000;
+        for (BatchRequest r : group.myAccepted) r.setRefactoringMillis(millis);
+
+        // The duplicates search runs in a background task : wait for it before the next group (and before the project is closed).
+        if (mySearchDuplicates && refactored[0]) {
+            try {
+                if (!duplicatesSearched.await(PullUpGenProcessor.DUPLICATES_SEARCH_TIMEOUT_SECONDS + 30, TimeUnit.SECONDS))
+                    LOG.warn("Duplicates search for " + targetName + " not finished, going on");
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Group analyseGroup(String targetName, List<BatchRequest> requests) {
+        final Group group = new Group();
+        final GlobalSearchScope scope = GlobalSearchScope.projectScope(myProject);
+        final JavaPsiFacade facade = JavaPsiFacade.getInstance(myProject);
+
+        group.myTargetClass = facade.findClass(targetName, scope);
+        if (group.myTargetClass == null) {
+            for (BatchRequest r : requests) r.setFailure("target superclass not found");
+            return group;
+        }
+        group.myMatrix = CompatibilityMatrix.forSuperClass(group.myTargetClass);
+
+        for (BatchRequest r : requests) {
+            final long start = System.nanoTime();
+            try {
+                final String failure = analyseRequest(r, group, facade, scope);
+                if (failure != null) r.setFailure(failure);
+                else group.myAccepted.add(r);
+            }
+            catch (IllegalArgumentException e) {
+                r.setFailure(e.getMessage());
+            }
+            r.setAnalysisMillis((System.nanoTime() - start) / 1000000);
+        }
+        if (!group.myMembers.isEmpty()) removeConflictingMembers(group);
+        return group;
+    }
+
+    /** The conflicts shown by the dialog refactoring (see JavaPullUpGenHandler.checkConflicts) make the requests of the members concerned fail.
+     *  A conflict which is not in one of the members makes all the requests of the group fail. */
+    private static void removeConflictingMembers(Group group) {
+        while (!group.myMembers.isEmpty()) {
+            final Collection<MemberInfo> infos = group.myMembers.values();
+            final MultiMap<PsiElement, String> conflicts = JavaPullUpGenHandler.collectConflicts(infos.toArray(new MemberInfo[infos.size()]),
+                    group.mySourceClass, group.myTargetClass);
+            if (conflicts.isEmpty()) return;
+
+            final Map<PsiMember, String> conflictingMembers = new HashMap<PsiMember, String>();
+            for (Map.Entry<PsiElement, Collection<String>> conflict : conflicts.entrySet()) {
+                final String message = "conflict : " + StringUtil.removeHtmlTags(StringUtil.join(conflict.getValue(), " ; "));
+                final PsiMember member = findMemberOf(conflict.getKey(), group.myMembers.keySet());
+                if (member == null) { // the members cannot be pulled up separately
+                    for (BatchRequest r : group.myAccepted) r.setFailure(message);
+                    group.myAccepted.clear();
+                    group.myMembers.clear();
+                    return;
+                }
+                if (!conflictingMembers.containsKey(member)) conflictingMembers.put(member, message);
+            }
+
+            for (Iterator<BatchRequest> it = group.myAccepted.iterator(); it.hasNext(); ) {
+                final BatchRequest r = it.next();
+                final String message = conflictingMembers.get(group.myRequestMethods.get(r));
+                if (message != null) {
+                    r.setFailure(message);
+                    it.remove();
+                }
+            }
+            group.myMembers.keySet().removeAll(conflictingMembers.keySet()); // and check again without them
+        }
+    }
+
+    @Nullable
+    private static PsiMember findMemberOf(@Nullable PsiElement element, Collection<PsiMember> members) {
+        for (PsiMember m : members) {
+            if (element != null && PsiTreeUtil.isAncestor(m, element, false)) return m;
+        }
+        return null;
+    }
+
+    /** Adds the member of the request to the group, or returns the reason why it cannot be pulled up. */
+    @Nullable
+    private static String analyseRequest(BatchRequest r, Group group, JavaPsiFacade facade, GlobalSearchScope scope) {
+        final PsiClass source = facade.findClass(r.getSourceClass(), scope);
+        if (source == null) return "source class not found";
+        if (!group.myMatrix.getSisterClasses().contains(source)) return "not a direct subclass of the target superclass";
+
+        final PsiMember member = r.findMember(source);
+        if (member == null) return "member not found";
+        if (!(member instanceof PsiMethod)) return "only methods can be pulled up with generics";
+
+        if (group.mySourceClass == null) group.mySourceClass = source;
+        PsiMethod method = (PsiMethod) member;
+        if (source != group.mySourceClass) {
+            method = group.myMatrix.getCell(method, group.mySourceClass).getMethod();
+            if (method == null) return "no compatible method in " + group.mySourceClass.getQualifiedName();
+        }
+
+        if (!group.myMembers.containsKey(method)) {
+            final MemberInfo info = new MemberInfo(method);
+            if (!group.myMatrix.canGenMember(info)) return explainFailure(group.myMatrix, method);
+            info.setChecked(true);
+            info.setToAbstract(true);
+            group.myMembers.put(method, info);
+        }
+        group.myRequestMethods.put(r, method);
+        return null;
+    }
+
+    private static String explainFailure(CompatibilityMatrix matrix, PsiMethod m) {
+        for (PsiClass c : matrix.getSisterClasses()) {
+            final Exception failure = matrix.getCell(m, c).getFailure();
+            if (failure instanceof AmbiguousOverloading) return "ambiguous overloading in " + c.getQualifiedName();
+            if (failure != null) return "no compatible method in " + c.getQualifiedName();
+        }
+        return "the target superclass already has a method with the same parameter types";
+    }
+}
@@ -0,0 +1,116 @@
+package fr.polytech.refactoring.batch;
+
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Headless entry point for refactoring campaigns :
+ *
+ *    idea pullupgen [--duplicates] <project directory> <request file (.json or .csv)> <result file (.csv)>
+ *
+ * Opens the project, runs the requests (see BatchRequest and PullUpGenBatchRunner), saves the files,
+ * writes the results (status, timings and failure reason of each request) and exits.
+ * The search of the duplicates of the pulled-up methods is only done with --duplicates : the duplicates are then only logged
+ * (they are not replaced, there is no one to confirm the replacements) and the runner waits for the search after each group.
+ */
+public class PullUpGenBatchStarter implements ApplicationStarter {
+    private static final Logger LOG = Logger.getInstance(PullUpGenBatchStarter.class);
+
+    @Override
+    public String getCommandName() {
+        return "pullupgen";
+    }
+
+    @Override
+    public void main(@NotNull String[] args) {
+        final List<String> arguments = new ArrayList<String>(Arrays.asList(args).subList(1, args.length)); // args[0] is the command name
+        final boolean searchDuplicates = arguments.remove("--duplicates");
+        if (arguments.size() != 3) {
+            System.err.println("Usage : pullupgen [--duplicates] <project directory> <request file (.json or .csv)> <result file (.csv)>");
+            System.exit(1);
+        }
+
+        // The analyses need read actions and the smart mode : the campaign is not run in the event dispatch thread.
+        ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+            public void run() {
+                int exitCode = 0;
+                try {
+                    runCampaign(arguments.get(0), new File(arguments.get(1)), new File(arguments.get(2)), searchDuplicates);
+                }
+                catch (Throwable e) {
+                    LOG.error(e);
+                    exitCode = 1;
+                }
+                exit(exitCode);
+            }
+        });
+    }
+
+    private static void runCampaign(final String projectPath, File requestFile, File resultFile, boolean searchDuplicates) throws Exception {
+        final List<BatchRequest> requests = BatchRequest.read(requestFile);
+        LOG.info(requests.size() + " requests read from " + requestFile);
+
+        final Project[] project = new Project[1];
+        ApplicationManager.getApplication().invokeAndWait(new Runnable() {
+            public void run() {
+                project[0] = ProjectUtil.openOrImport(projectPath, null, false);
+            }
+        });
+        if (project[0] == null) throw new IllegalStateException("cannot open the project " + projectPath);
+
+        try {
+            DumbService.getInstance(project[0]).waitForSmartMode();
+            new PullUpGenBatchRunner(project[0], searchDuplicates).run(requests);
+        }
+        finally {
+            BatchRequest.writeResults(requests, resultFile);
+            ApplicationManager.getApplication().invokeAndWait(new Runnable() {
+                public void run() {
+                    ProjectManager.getInstance().closeProject(project[0]);
+                }
+            });
+        }
+
+        int failed = 0;
+        for (BatchRequest r : requests) if (r.getFailure() != null) failed++;
+        LOG.info((requests.size() - failed) + " requests done, " + failed + " failed, results in " + resultFile);
+    }
+
+    private static void exit(final int exitCode) {
+        ApplicationManager.getApplication().invokeLater(new Runnable() {
+            public void run() {
+                ApplicationManagerEx.getApplicationEx().exit(true, true);
+                System.exit(exitCode);
+            }
+        });
+    }
+}
@@ -58,7 +58,6 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.Arrays; // J
-import java.util.Vector; // J
 
 /**
  *
@@ -91,7 +90,8 @@ public class ExtractSuperClassMultiUtil {
 
     // final String packageName = ((PsiJavaFile) subclass.getContainingFile()).getPackageName();
 
-    final Collection<PsiClass> selectedSisterClasses = filterSisterClasses(Arrays.asList(selectedMemberInfos), useGenericUnification, sisterClasses);
+    final CompatibilityMatrix matrix = new CompatibilityMatrix(null, sisterClasses); // the target superclass does not exist yet
+    final Collection<PsiClass> selectedSisterClasses = filterSisterClasses(Arrays.asList(selectedMemberInfos), useGenericUnification, sisterClasses, matrix);
 
     PsiClass myfreshsuperclass = JavaDirectoryService.getInstance().createClass(targetDirectory, superclassName);
     // We must create this class after computing the sister class
@@ -102,7 +102,7 @@ public class ExtractSuperClassMultiUtil {
         throw new IncorrectOperationException("Internal error: no convenient class found (in extractSuperClassMulti).");
       }
 
-      return extractSuperClassMulti(selectedSisterClasses, selectedMemberInfos, javaDocPolicy, useGenericUnification, myfreshsuperclass);
+      return extractSuperClassMulti(selectedSisterClasses, selectedMemberInfos, javaDocPolicy, useGenericUnification, myfreshsuperclass, matrix);
     }
     finally {
       project.getMessageBus().syncPublisher(RefactoringEventListener.REFACTORING_EVENT_TOPIC).refactoringDone(REFACTORING_EXTRACT_SUPER_ID, createAfterData(myfreshsuperclass));
@@ -111,13 +111,24 @@ public class ExtractSuperClassMultiUtil {
 
 
 
-  // Modified (Julien)
   public static PsiClass extractSuperClassMulti(final Collection<PsiClass> subclasses,
                                                 final MemberInfo[] selectedMemberInfos,
                                                 final DocCommentPolicy javaDocPolicy,
                                                 final boolean useGenericUnification,
                                                 PsiClass thefreshsuperclass)
     throws IncorrectOperationException {
+    return extractSuperClassMulti(subclasses, selectedMemberInfos, javaDocPolicy, useGenericUnification, thefreshsuperclass, null);
+  }
+
+  // Modified (Julien)
+  // The matrix, when given, is the one used to select the subclasses: the methods it has matched are not searched again.
+  public static PsiClass extractSuperClassMulti(final Collection<PsiClass> subclasses,
+                                                final MemberInfo[] selectedMemberInfos,
+                                                final DocCommentPolicy javaDocPolicy,
+                                                final boolean useGenericUnification,
+                                                PsiClass thefreshsuperclass,
+                                                @Nullable CompatibilityMatrix matrix)
+    throws IncorrectOperationException {
     assert (!subclasses.isEmpty());
     PsiClass aSubClass = subclasses.iterator().next();
 
@@ -163,12 +174,10 @@ public class ExtractSuperClassMultiUtil {
     else {  */
     if (selectedMemberInfos.length != 0) {
       PullUpGenProcessor pullUpHelper =
-              new PullUpGenProcessor(aSubClass, subclasses, thefreshsuperclass, selectedMemberInfos, javaDocPolicy);
+              new PullUpGenProcessor(aSubClass, subclasses, thefreshsuperclass, selectedMemberInfos, javaDocPolicy, matrix);
 
       try {
         pullUpHelper.moveMembersToBase();
-        // TODO : make that efficient
-        // (unifiers are searched twice: one time for computing the sister classes, and one time for the pull-up)
       } catch (AmbiguousOverloading ambiguousOverloading) {
         throw new IncorrectOperationException(ambiguousOverloading.toString());
       } catch (MemberNotImplemented notImplemented) {
@@ -176,6 +185,7 @@ public class ExtractSuperClassMultiUtil {
       }
 
       pullUpHelper.moveFieldInitializations();
+      pullUpHelper.getPhaseTimings().log(LOG, "Extract superclass " + thefreshsuperclass.getName());
     }
 
    /* } */
@@ -357,26 +367,14 @@ public class ExtractSuperClassMultiUtil {
 
   // Filter sister classes which have the selected members
   public static Collection<PsiClass> filterSisterClasses(Iterable<MemberInfo> selectedMemberInfos, boolean useGenericUnification, Collection<PsiClass> sisterClasses) {
-    Collection<PsiClass> selectedClasses = new Vector();
-
-    if (!useGenericUnification){
-      for (PsiClass c : sisterClasses){
-        if (Comparison.hasMembers(c, selectedMemberInfos)) selectedClasses.add(c);
-      }
-    }
-
-    else {
-      for (PsiClass c : sisterClasses){
-        try {
-          if (GenAnalysisUtils.hasCompatibleMembers(c, selectedMemberInfos))
-            selectedClasses.add(c);
-        } catch (AmbiguousOverloading ambiguousOverloading) {
-          throw new IncorrectOperationException(ambiguousOverloading.toString()) ;
-        }
-      }
-    }
+    return new SisterClassesFilter(sisterClasses, useGenericUnification).filter(selectedMemberInfos);
+  }
 
-    return selectedClasses;
+  // The matrix is only used with generic unification.
+  // (To filter repeatedly the same sister classes, keep a SisterClassesFilter.)
+  public static Collection<PsiClass> filterSisterClasses(Iterable<MemberInfo> selectedMemberInfos, boolean useGenericUnification, Collection<PsiClass> sisterClasses,
+                                                         CompatibilityMatrix matrix) {
+    return new SisterClassesFilter(sisterClasses, useGenericUnification, matrix).filter(selectedMemberInfos);
   }
 
 }
@@ -32,6 +32,7 @@ import com.intellij.refactoring.classMembers.MemberInfoChange;
 import com.intellij.refactoring.classMembers.MemberInfoModel;
 import com.intellij.refactoring.extractSuperclass.ExtractSuperBaseProcessor;
 import com.intellij.refactoring.extractSuperclass.JavaExtractSuperBaseDialog;
+import fr.polytech.refactoring.genUtils.SisterClassesFilter;
 import fr.polytech.refactoring.genUtils.SisterClassesUtil;
 import com.intellij.refactoring.memberPullUp.PullUpProcessor;
 import com.intellij.refactoring.ui.MemberSelectionPanel;
@@ -173,13 +174,13 @@ class ExtractSuperclassMultiDialog extends JavaExtractSuperBaseDialog {
       mySisterClassList.setListData(l.toArray());
   }
 
+  // The sister classes do not change while the dialog is open : the compatible members are computed once per member.
+  private SisterClassesFilter mySisterClassesFilter = null;
+
   //Julien
   void updateSisterClassDisplay(){
-      Collection<PsiClass> l = ExtractSuperClassMultiUtil.filterSisterClasses(
-              getSelectedMemberInfos(),
-              myWithGenerification,
-              computeSisterClasses()
-      );
+      if (mySisterClassesFilter == null) mySisterClassesFilter = new SisterClassesFilter(computeSisterClasses(), myWithGenerification);
+      Collection<PsiClass> l = mySisterClassesFilter.filter(getSelectedMemberInfos());
       updateSisterClassDisplay(l);
   }
 
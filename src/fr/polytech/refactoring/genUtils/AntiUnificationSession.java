@@ -0,0 +1,91 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiMethod;
+import com.intellij.util.IncorrectOperationException;
+import fr.polytech.refactoring.antiunification.AntiUnificationException;
+import fr.polytech.refactoring.antiunification.AntiUnifier;
+import fr.polytech.refactoring.antiunification.TermDependentSubstitution;
+import fr.polytech.refactoring.antiunification.TermSubstitution;
+import fr.polytech.refactoring.antiunification.TypeTerm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Anti-unification of several methods pulled up into the same superclass, from the same sister classes.
+ *
+ * The PSI/term conversions, the dependent-substitution, the memo of the anti-unifier and the bound names are kept
+ * from one method to the next, so that a column with the same instantiation vector in two methods
+ * always gets the same type parameter (and a fresh name is never used twice).
+ * The dependent-substitution (getSubstitution) grows with the type parameters introduced for each method.
+ */
+public class AntiUnificationSession {
+
+    private final PsiTermAdapter myAdapter;
+    private final DependentSubstitution mySubstitution;
+    private final TermDependentSubstitution<PsiClass> myTermSubstitution;
+    private final AntiUnifier<PsiClass> myAntiUnifier;
+
+
+    /** The initial substitution gives the type parameters of the superclass and their instantiations in the sister classes
+     *  (see GenSubstitutionUtils.computePreviousSub). It is modified by the session.
+     *  The fresh names are chosen out of boundNames and added to it (as in GenSubstitutionUtils.antiunify).
+     *  The methods to anti-unify are then expected in each of the sister classes. */
+    public AntiUnificationSession(PsiElementFactory factory, Collection<PsiClass> sisterClasses,
+                                  DependentSubstitution initialSubstitution, Collection<String> boundNames) {
+        myAdapter = new PsiTermAdapter(factory);
+        mySubstitution = initialSubstitution;
+        myTermSubstitution = myAdapter.toTerms(initialSubstitution, new ArrayList<PsiClass>(sisterClasses));
+        myAntiUnifier = new AntiUnifier<PsiClass>(myAdapter.getTermFactory(), myTermSubstitution, boundNames);
+    }
+
+    public DependentSubstitution getSubstitution() {
+        return mySubstitution;
+    }
+
+    /** See GenSubstitutionUtils.antiunify. The new type parameters are added to the substitution of the session. */
+    public ParamSubstitution antiunify(List<PsiMethod> lm, String baseNameForTypeVariables) {
+        assert (lm.size() != 0);
+
+        final TypeTerm[][] profiles = new TypeTerm[myTermSubstitution.getClasses().size()][]; // indexed by the ordinal of the classes
+        for (PsiMethod m : lm) {
+            final int k = myTermSubstitution.indexOf(m.getContainingClass());
+            if (k < 0) throw new IncorrectOperationException("The method " + m.getName() + " is not in a sister class.");
+            profiles[k] = myAdapter.profile(m);
+        }
+        for (TypeTerm[] profile : profiles) {
+            if (profile == null) throw new IncorrectOperationException("The method is not implemented by all sister classes.");
+        }
+
+        final TermSubstitution result;
+        try {
+            result = myAntiUnifier.antiunify(profiles, baseNameForTypeVariables);
+        }
+        catch (AntiUnificationException e) {
+            throw new IncorrectOperationException(e.getMessage());
+        }
+
+        myAdapter.addNewTypeParameters(myTermSubstitution, mySubstitution);
+        return myAdapter.toParamSubstitution(result);
+    }
+}
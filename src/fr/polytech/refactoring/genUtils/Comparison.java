@@ -18,6 +18,7 @@ package fr.polytech.refactoring.genUtils;
  */
 
 import com.intellij.psi.*;
+import com.intellij.psi.impl.source.PsiFileImpl;
 import com.intellij.refactoring.util.classMembers.MemberInfo;
 import com.intellij.util.IncorrectOperationException;
 
@@ -78,10 +79,13 @@ public class Comparison {
 
     // see also sameMethods
     public static boolean hasSameMethod(PsiMethod m, PsiClass c){
+        final boolean stubOnly = !isAstLoaded(c);
+        boolean result = false;
         for (PsiMethod m_tmp: c.findMethodsByName(m.getName(), false)) {
-            if (haveSameType(m, m_tmp)) return true;
+            if (haveSameType(m, m_tmp)) { result = true; break; }
         }
-        return false;
+        assert !stubOnly || !isAstLoaded(c) : "AST loaded while looking for " + m.getName() + " in " + c.getName();
+        return result;
     }
 
     /** Check that two methods have the same name and the same type. */
@@ -97,7 +101,7 @@ public class Comparison {
         PsiParameter[] a2 = l2.getParameters();
 
         for (int i = 0; i< a1.length; i++){
-            if (! a1[i].getTypeElement().getType().equals(a2[i].getTypeElement().getType())) return false ;
+            if (! a1[i].getType().equals(a2[i].getType())) return false ; // getType() is read from the stubs, the type element is not
         }
         return true ;
 
@@ -155,13 +159,19 @@ public class Comparison {
     public static boolean hasSameImplements(PsiClass c, PsiClassType t){
 
         // EXISTS
-        for (PsiClassType ty : c.getImplementsList().getReferencedTypes()){
-            System.out.println (ty + " / " + t + " => " + ty.equals(t));
+        for (PsiClassType ty : c.getImplementsListTypes()){ // from the stubs
             if (ty.equals(t)) return true;
         }
         return false ;
     }
 
+    /** The analyses only read the stubs of the classes they compare, so that the classes of a large hierarchy
+     *  that are not modified never get their AST loaded. Used in assertions around these analyses. */
+    public static boolean isAstLoaded(PsiElement e){
+        final PsiFile f = e.getContainingFile();
+        return f instanceof PsiFileImpl && ((PsiFileImpl) f).isContentsLoaded();
+    }
+
     public static boolean memberClassComesFromImplements(MemberInfo m){
 
         /** ************ THIS IS A COMMENT FROM MemberInfoBase.getOverrides ********************
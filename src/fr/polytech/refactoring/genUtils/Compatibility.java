@@ -67,20 +67,25 @@ public class Compatibility {
         return true ;
     }
 
+    /* The types are read from the stubs : comparing m1 with a method of a class which is not modified does not load its AST. */
+
     public static boolean isCompatible(PsiMethod m1, PsiMethod m2){
         assert(!m1.hasModifierProperty("private"));
-        return
+        final boolean stubOnly = !Comparison.isAstLoaded(m2);
+        final boolean result =
                 (!m2.hasModifierProperty("private"))
                         && Comparison.haveSameName(m1,m2)
                         && antiUnifiable(m1,m2) ;
-
+        assert !stubOnly || !Comparison.isAstLoaded(m2) : "AST loaded while comparing " + m1.getName() + " with " + m2.getName();
+        return result;
     }
 
     public static boolean isSemiCompatible(PsiMethod m1, PsiMethod m2){
-
-        return
+        final boolean stubOnly = !Comparison.isAstLoaded(m2);
+        final boolean result =
                 Comparison.haveSameName(m1,m2)
                         && semiAntiUnifiable(m1,m2) ;
-
+        assert !stubOnly || !Comparison.isAstLoaded(m2) : "AST loaded while comparing " + m1.getName() + " with " + m2.getName();
+        return result;
     }
 }
@@ -0,0 +1,244 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import com.intellij.util.IncorrectOperationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Member x sister-class matrix : for a method to pull up and a sister class,
+ * the compatible method found in that class, or the reason why there is none.
+ *
+ * Cells are computed on demand and kept, so that the GUI analyses, the computation of
+ * the sister classes and the pull-up itself match each method only once.
+ * The matrix does not follow the PSI changes : use isUpToDate() before reusing it
+ * in another command.
+ */
+public class CompatibilityMatrix {
+
+    /** The unique compatible method found in a sister class, or the failure (MemberNotImplemented or AmbiguousOverloading). */
+    public static class Cell {
+        private final PsiMethod myMethod;
+        private final Exception myFailure;
+
+        private Cell(PsiMethod method, Exception failure) {
+            myMethod = method;
+            myFailure = failure;
+        }
+
+        @Nullable
+        public PsiMethod getMethod() { return myMethod; }
+
+        @Nullable
+        public Exception getFailure() { return myFailure; }
+
+        void rethrow() throws MemberNotImplemented, AmbiguousOverloading {
+            if (myFailure instanceof AmbiguousOverloading) throw (AmbiguousOverloading) myFailure;
+            if (myFailure instanceof MemberNotImplemented) throw (MemberNotImplemented) myFailure;
+        }
+    }
+
+
+    private final Project myProject;
+    @Nullable
+    private final PsiClass myTargetSuperClass;
+    private final List<PsiClass> mySisterClasses;
+    private final boolean myMustBePublic;
+    private final long myModificationCount;
+
+    private final ConcurrentMap<PsiMethod, ConcurrentMap<PsiClass, Cell>> myCells = new ConcurrentHashMap<PsiMethod, ConcurrentMap<PsiClass, Cell>>();
+    private final HierarchyGraph myHierarchy = new HierarchyGraph(); // for canDirectAbstractPullupMember
+
+
+    /* The target superclass can be null when it does not exist yet (extract superclass).
+       The compatible methods must be public when the target is an interface. */
+    public CompatibilityMatrix(@Nullable PsiClass targetSuperClass, @NotNull Collection<PsiClass> sisterClasses) {
+        assert (targetSuperClass != null || !sisterClasses.isEmpty());
+        myTargetSuperClass = targetSuperClass;
+        mySisterClasses = new ArrayList<PsiClass>(sisterClasses);
+        myMustBePublic = targetSuperClass != null && targetSuperClass.isInterface();
+        myProject = targetSuperClass != null ? targetSuperClass.getProject() : mySisterClasses.get(0).getProject();
+        myModificationCount = PsiModificationTracker.getInstance(myProject).getModificationCount();
+    }
+
+    /** The matrix for the direct subclasses of the given superclass. */
+    public static CompatibilityMatrix forSuperClass(@NotNull PsiClass targetSuperClass) {
+        return new CompatibilityMatrix(targetSuperClass, SisterClassesUtil.findDirectSubClasses(targetSuperClass));
+    }
+
+
+    @Nullable
+    public PsiClass getTargetSuperClass() {
+        return myTargetSuperClass;
+    }
+
+    public List<PsiClass> getSisterClasses() {
+        return mySisterClasses;
+    }
+
+    /** Returns false as soon as the PSI has changed since the matrix was built. */
+    public boolean isUpToDate() {
+        return PsiModificationTracker.getInstance(myProject).getModificationCount() == myModificationCount;
+    }
+
+
+    /* ------ Cells ------ */
+
+    @NotNull
+    public Cell getCell(PsiMethod m, PsiClass c) {
+        ConcurrentMap<PsiClass, Cell> row = myCells.get(m);
+        if (row == null) {
+            final ConcurrentMap<PsiClass, Cell> newRow = new ConcurrentHashMap<PsiClass, Cell>();
+            row = myCells.putIfAbsent(m, newRow);
+            if (row == null) row = newRow;
+        }
+        Cell cell = row.get(c);
+        if (cell == null) {
+            cell = computeCell(m, c); // computing a cell twice in concurrent threads is harmless
+            row.put(c, cell);
+        }
+        return cell;
+    }
+
+    private Cell computeCell(PsiMethod m, PsiClass c) {
+        ProgressManager.checkCanceled(); // the matrix can be built in a highlighting pass
+        final boolean stubOnly = !Comparison.isAstLoaded(c);
+        final List<PsiMethod> found = myMustBePublic ? GenAnalysisUtils.findCompatiblePublicMethodsInClass(m, c)
+                                                     : GenAnalysisUtils.findCompatibleMethodsInClass(m, c);
+        assert !stubOnly || !Comparison.isAstLoaded(c) : "AST loaded while matching " + m.getName() + " in " + c.getName();
+        if (found.size() > 1) return new Cell(null, new AmbiguousOverloading(m, c));
+        if (found.isEmpty())  return new Cell(null, new MemberNotImplemented(m, c));
+        return new Cell(found.get(0), null);
+    }
+
+
+    /* ------ Queries (see the corresponding methods in GenAnalysisUtils) ------ */
+
+    /** Same as GenAnalysisUtils.findSubClassesWithCompatibleMember, on the sister classes of the matrix. */
+    @NotNull
+    public Collection<PsiClass> findSubClassesWithCompatibleMember(MemberInfo mem)
+            throws MemberNotImplemented, AmbiguousOverloading {
+
+        final PsiMember m = mem.getMember();
+
+        if (m instanceof PsiMethod) {
+            for (PsiClass c : mySisterClasses) {
+                getCell((PsiMethod) m, c).rethrow();
+            }
+            return new LinkedList<PsiClass>(mySisterClasses);
+        }
+
+        else if (m instanceof PsiClass && Comparison.memberClassComesFromImplements(mem)) {
+            for (PsiClass c : mySisterClasses) {
+                ProgressManager.checkCanceled();
+                if (!GenAnalysisUtils.hasCompatibleImplements(c, (PsiClass) m)) throw new MemberNotImplemented(m, c);
+            }
+            return new LinkedList<PsiClass>(mySisterClasses);
+        }
+
+        else if (m instanceof PsiClass) {
+            throw new IncorrectOperationException("implement me : pull up class " + m);} // FIXME
+
+        else if (m instanceof PsiField) {
+            throw new IncorrectOperationException("implement me : pull up field");} // FIXME
+
+        else throw new IncorrectOperationException("cannot handle this kind of member:" + m); // FIXME
+    }
+
+
+    /** Same as GenAnalysisUtils.computeCanGenMember (used for the GUI). */
+    public boolean canGenMember(MemberInfo member) {
+        final PsiMember m = member.getMember();
+        if (!(m instanceof PsiMethod)) return false;
+
+        try {
+            findSubClassesWithCompatibleMember(member);
+        }
+        catch (AmbiguousOverloading e) { return false; }
+        catch (MemberNotImplemented e) { return false; }
+
+        // This avoids a possibly problematic overloading in super class.
+        return myTargetSuperClass == null || GenAnalysisUtils.hasSemiCompatibleMethod((PsiMethod) m, myTargetSuperClass) == 0;
+    }
+
+
+    /** Same as GenAnalysisUtils.computeCanDirectAbstractPullupMember (used for the GUI), with a hierarchy graph shared by all the members.
+     *  The target superclass must not be null. */
+    public boolean canDirectAbstractPullupMember(MemberInfo member) {
+        assert (myTargetSuperClass != null);
+        return GenAnalysisUtils.computeCanDirectAbstractPullupMember(myTargetSuperClass, member, myHierarchy);
+    }
+
+
+    /** Same as GenAnalysisUtils.findCompatibleMethods, the result is given in the order of the given classes. */
+    public List<PsiMethod> findCompatibleMethods(PsiMethod method, Collection<PsiClass> sisterClasses) {
+        final List<PsiMethod> sisterMethods = new LinkedList<PsiMethod>();
+        for (PsiClass c : sisterClasses) {
+            final Cell cell = getCell(method, c);
+            if (cell.getFailure() instanceof MemberNotImplemented) {
+                throw new IncorrectOperationException("The method is not implemented by all sister classes.");
+            }
+            if (cell.getFailure() instanceof AmbiguousOverloading) {
+                throw new IncorrectOperationException("The method is overloaded (with the same number of arguments).");
+            }
+            sisterMethods.add(cell.getMethod());
+        }
+        return sisterMethods;
+    }
+
+
+    /** Same as GenAnalysisUtils.hasCompatibleMembers. */
+    public boolean hasCompatibleMembers(PsiClass c, Iterable<MemberInfo> membersToPullUp)
+            throws AmbiguousOverloading {
+
+        for (MemberInfo member : membersToPullUp) {
+            final PsiMember theMember = member.getMember();
+
+            if (theMember instanceof PsiMethod) {
+                final Cell cell = getCell((PsiMethod) theMember, c);
+                if (cell.getFailure() instanceof AmbiguousOverloading) throw (AmbiguousOverloading) cell.getFailure();
+                if (cell.getMethod() == null) return false;
+            }
+
+            else if (theMember instanceof PsiField) {
+                if (!Comparison.hasField((PsiField) theMember, c)) return false;
+            }
+
+            else if (theMember instanceof PsiClass) {
+                throw new IncorrectOperationException("(hasCompatibleMembers) don't know what to do with that class : " + theMember);
+            }
+
+            else throw new IncorrectOperationException("This kind of member not handled yet : " + theMember);  // FIXME
+        }
+
+        return true;
+    }
+}
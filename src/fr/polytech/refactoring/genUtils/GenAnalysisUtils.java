@@ -1,14 +1,22 @@
 package fr.polytech.refactoring.genUtils;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.refactoring.util.classMembers.MemberInfo;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Copyright 2012, 2016 Université de Nantes
@@ -37,31 +45,17 @@ public class GenAnalysisUtils {
      * The sister classes of a class are the direct subclasses of its direct superclass.
      */
 
-    public static boolean checkSubClassesHaveSameMethod(PsiMethod m, PsiClass superClass){
+    /* The recursive checks are done by a HierarchyGraph, which memoizes them.
+       To do several checks on the same hierarchy, keep the graph (see CompatibilityMatrix.canDirectAbstractPullupMember). */
 
-        // Algorithmic skeleton : FORALL_BRANCHES : hasSameMethod
-        for (PsiClass c: SisterClassesUtil.findDirectSubClassesInDirectory(superClass)){
-            if (!Comparison.hasSameMethod(m, c))  {
-                // OK only if interface/abstract-class and the method is in all subclasses
-                if ( ! ( (c.isInterface() || Comparison.isAbstract(c)) && checkSubClassesHaveSameMethod(m, c)))
-                    return false;
-            }
-        }
-        return true;
+    public static boolean checkSubClassesHaveSameMethod(PsiMethod m, PsiClass superClass){
+        return new HierarchyGraph().checkSubClassesHaveSameMethod(m, superClass);
     }
 
 
 
     public static boolean checkSubClassesImplementInterface(PsiClassType t, PsiClass superClass){
-
-        // Algorithmic skeleton : FORALL_BRANCHES : hasSameImplements
-        for (PsiClass c: SisterClassesUtil.findDirectSubClassesInDirectory(superClass)){
-            if (!Comparison.hasSameImplements(c, t))  {
-                // OK only if interface/abstract-class and the method is in all subclasses
-                if ( ! ( (c.isInterface() || Comparison.isAbstract(c)) && checkSubClassesImplementInterface(t, c))) return false;
-            }
-        }
-        return true;
+        return new HierarchyGraph().checkSubClassesImplementInterface(t, superClass);
     }
 
 
@@ -85,7 +79,7 @@ public class GenAnalysisUtils {
             throws MemberNotImplemented
     {
         assert (i.isInterface());
-        final Collection <PsiClass> directSubClasses = SisterClassesUtil.findDirectSubClassesInDirectory(superClass);
+        final Collection <PsiClass> directSubClasses = SisterClassesUtil.findDirectSubClasses(superClass);
         for (PsiClass c: directSubClasses){
             if (! hasCompatibleImplements(c, i)) throw new MemberNotImplemented(i, c);
         }
@@ -139,7 +133,7 @@ public class GenAnalysisUtils {
             throws AmbiguousOverloading, MemberNotImplemented {
 
         final Collection<PsiClass> res = new LinkedList<PsiClass>();
-        final Collection <PsiClass> directSubClasses = SisterClassesUtil.findDirectSubClassesInDirectory(superClass);
+        final Collection <PsiClass> directSubClasses = SisterClassesUtil.findDirectSubClasses(superClass);
 
         for (PsiClass c: directSubClasses){
             final int count = hasCompatibleMethod(m, c, checkpublic);
@@ -221,7 +215,8 @@ public class GenAnalysisUtils {
 
     public static List<PsiMethod> findCompatibleMethodsInClass(PsiMethod m, PsiClass c){
         final List <PsiMethod> result = new LinkedList<PsiMethod>();
-        for (PsiMethod m_tmp: c.getMethods()){
+        if (!MethodShapeIndex.mayHaveCompatibleMethod(m, c, false)) return result; // without loading the PSI of c
+        for (PsiMethod m_tmp: findMethodsWithSameShape(m, c)){
             if (Compatibility.isCompatible(m, m_tmp))
                 result.add(m_tmp);
         }
@@ -230,7 +225,8 @@ public class GenAnalysisUtils {
 
     public static List<PsiMethod> findCompatiblePublicMethodsInClass(PsiMethod m, PsiClass c){
         final List <PsiMethod> result = new LinkedList<PsiMethod>();
-        for (PsiMethod m_tmp: c.getMethods()){
+        if (!MethodShapeIndex.mayHaveCompatibleMethod(m, c, true)) return result;
+        for (PsiMethod m_tmp: findMethodsWithSameShape(m, c)){
             if (Compatibility.isCompatible(m, m_tmp) && m_tmp.hasModifierProperty("public"))
                 result.add(m_tmp);
         }
@@ -238,11 +234,13 @@ public class GenAnalysisUtils {
     }
 
     public static List<PsiMethod> findSemiCompatibleMethodsInClass(PsiMethod m, PsiClass c){
+        final boolean stubOnly = !Comparison.isAstLoaded(c);
         final List <PsiMethod> result = new LinkedList<PsiMethod>();
-        for (PsiMethod m_tmp: c.getMethods()){
+        for (PsiMethod m_tmp: findMethodsWithSameShape(m, c)){
             if (Compatibility.isSemiCompatible(m, m_tmp))
                 result.add(m_tmp);
         }
+        assert !stubOnly || !Comparison.isAstLoaded(c) : "AST loaded while looking for " + m.getName() + " in " + c.getName();
         return result;
     }
 
@@ -250,6 +248,45 @@ public class GenAnalysisUtils {
 
 
 
+    /* ------ Index of the methods of a class by (name, number of parameters) ------ */
+
+    private static final Key<CachedValue<Map<String, List<PsiMethod>>>> METHOD_INDEX_KEY =
+            Key.create("fr.polytech.refactoring.genUtils.methodIndex");
+
+    /** The methods of c with the same name and the same number of parameters as m (the only candidates for compatibility). */
+    static List<PsiMethod> findMethodsWithSameShape(PsiMethod m, final PsiClass c){
+        final Map<String, List<PsiMethod>> index = CachedValuesManager.getCachedValue(c, METHOD_INDEX_KEY,
+                new CachedValueProvider<Map<String, List<PsiMethod>>>() {
+                    public Result<Map<String, List<PsiMethod>>> compute() {
+                        return Result.create(buildMethodIndex(c), c);
+                    }
+                });
+        final List<PsiMethod> candidates = index.get(shapeKey(m.getName(), m.getParameterList().getParametersCount()));
+        return candidates == null ? Collections.<PsiMethod>emptyList() : candidates;
+    }
+
+    private static Map<String, List<PsiMethod>> buildMethodIndex(PsiClass c){
+        final Map<String, List<PsiMethod>> index = new HashMap<String, List<PsiMethod>>();
+        for (PsiMethod m: c.getMethods()){ // the order of the methods is kept in each entry
+            final String key = shapeKey(m.getName(), m.getParameterList().getParametersCount());
+            List<PsiMethod> l = index.get(key);
+            if (l == null) {
+                l = new ArrayList<PsiMethod>(1);
+                index.put(key, l);
+            }
+            l.add(m);
+        }
+        return index;
+    }
+
+    static String shapeKey(String name, int arity){
+        return name + "/" + arity;
+    }
+
+
+
+
+
     public static int hasCompatiblePublicMethod(PsiMethod m, PsiClass c) {
         return findCompatiblePublicMethodsInClass(m, c).size();
     }
@@ -338,7 +375,7 @@ public class GenAnalysisUtils {
     }
 
     // This is used for the GUI : the GUI just needs a boolean, so the set of classes is discarded.
-    // TODO : avoid to lose the information on the set of classes to avoid to have to compute it again later.
+    // See CompatibilityMatrix.canGenMember to keep the information on the set of classes (and the matched methods).
     public static boolean computeCanGenMember(MemberInfo member, PsiClass sup) {
         boolean result;
         PsiMember m = member.getMember();
@@ -357,12 +394,16 @@ public class GenAnalysisUtils {
 
     // See also hasMember
     public static boolean computeCanDirectAbstractPullupMember(PsiClass selectedSuper, MemberInfo mem) {
+          return computeCanDirectAbstractPullupMember(selectedSuper, mem, new HierarchyGraph());
+    }
+
+    public static boolean computeCanDirectAbstractPullupMember(PsiClass selectedSuper, MemberInfo mem, HierarchyGraph hierarchy) {
           PsiMember m = mem.getMember();
 
 
           // *) Methods
           if (m instanceof PsiMethod){
-              return checkSubClassesHaveSameMethod((PsiMethod) m, selectedSuper) ;
+              return hierarchy.checkSubClassesHaveSameMethod((PsiMethod) m, selectedSuper) ;
           }
 
           // *) Fields
@@ -374,7 +415,7 @@ public class GenAnalysisUtils {
               final PsiClassType[] referencedTypes = mem.getSourceReferenceList().getReferencedTypes();
               assert(referencedTypes.length == 1) ;
 
-              return checkSubClassesImplementInterface(referencedTypes[0], selectedSuper) ;
+              return hierarchy.checkSubClassesImplementInterface(referencedTypes[0], selectedSuper) ;
           }
 
           // *) Other cases.
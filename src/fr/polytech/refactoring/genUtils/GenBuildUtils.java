@@ -1,11 +1,10 @@
 package fr.polytech.refactoring.genUtils;
 
 import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
 import com.intellij.util.IncorrectOperationException;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 
 /**
@@ -33,42 +32,67 @@ public class GenBuildUtils {
     public static void generifyAbstractMethod(PsiMethod m, ParamSubstitution lp){
         final PsiElementFactory factory = JavaPsiFacade.getElementFactory(m.getProject());
         
-        for (Integer pos : lp.keySet()){
+        final PsiParameter[] parameters = m.getParameterList().getParameters();
+        for (int pos = -1; pos < lp.getParameterCount(); pos++){
             final PsiType      t1     = lp.get(pos);
+            if (t1 == null) continue;
             final PsiElement   e      = factory.createTypeElement(t1);
 
             if (pos == -1) {
               m.getReturnTypeElement().replace(e);
             }
             else {
-              m.getParameterList().getParameters()[pos].getTypeElement().replace(e);
+              parameters[pos].getTypeElement().replace(e);
             }
         }
     }
 
-    static String buildTypeParameter(int pos, String name, Collection<String> boundNames){
-        String tentative =  (pos == -1) ? ("T" + name + "RET") : ("T" + name + pos) ;
-        while (boundNames.contains(tentative)) tentative= tentative+"x" ;
-        return tentative;
-
-    }
-
-
-
     public static void updateExtendsStatementsInSisterClasses(
             DependentSubstitution megasub,
             PsiClass superClass,
             PsiElementFactory factory) {
 
 
+      // collect the type arguments to add in each class (in the order of the type parameters), then rewrite each reference once.
+      final Map<PsiClass,List<PsiType>> newArguments = new LinkedHashMap<PsiClass,List<PsiType>>();
       for (PsiTypeParameter theTypeParameter: megasub.keySet()){
         final Map<PsiClass,PsiType> m = megasub.get(theTypeParameter);
         for (PsiClass c : m.keySet()){
-            final PsiJavaCodeReferenceElement extendsRef = findReferenceToSuperclass(c, superClass);
-            PsiType concreteType = megasub.getConcretes(theTypeParameter, c);
-            addTypeParameterToReference(extendsRef, concreteType, factory);
+            List<PsiType> l = newArguments.get(c);
+            if (l == null) {
+                l = new ArrayList<PsiType>();
+                newArguments.put(c, l);
+            }
+            l.add(megasub.getConcretes(theTypeParameter, c));
         }
       }
+
+      for (Map.Entry<PsiClass,List<PsiType>> e : newArguments.entrySet()){
+          addTypeParametersToReference(findReferenceToSuperclass(e.getKey(), superClass), e.getValue(), factory);
+      }
+    }
+
+    /** Add type parameters at the end of the type parameter list of a class (the order of the collection is kept).
+     *  When the class has no type parameter yet, the list is rewritten once. Otherwise the parameters are added one by one,
+     *  so that the existing parameters remain valid (types built before the refactoring may refer to them). */
+    public static void addTypeParametersToClass(PsiClass c, Collection<PsiTypeParameter> newParameters, PsiElementFactory factory){
+        if (newParameters.isEmpty()) return;
+        final PsiTypeParameterList list = c.getTypeParameterList();
+        assert (list != null);
+
+        if (list.getTypeParameters().length != 0) {
+            for (PsiTypeParameter t : newParameters) list.add(t);
+            return;
+        }
+
+        final StringBuilder text = new StringBuilder("<");
+        String sep = "";
+        for (PsiTypeParameter t : newParameters) {
+            text.append(sep).append(t.getText());
+            sep = ", ";
+        }
+        text.append("> void m() {}");
+        list.replace(factory.createMethodFromText(text.toString(), c).getTypeParameterList());
     }
 
     /** Replace "class A extends S" by "class A extends S < Object >" when S has a type parameter.
@@ -89,9 +113,7 @@ public class GenBuildUtils {
         final int len_super      = superclass.getTypeParameters().length;
         final PsiType ob = factory.createTypeFromText("Object", null);
 
-        for (int i=0; i< len_super - len; i++ ) {
-            addTypeParameterToReference(extendsRef, ob, factory);
-        }
+        if (len_super > len) addTypeParametersToReference(extendsRef, Collections.nCopies(len_super - len, ob), factory);
 
     }
 
@@ -111,8 +133,34 @@ public class GenBuildUtils {
         
     }
     
-    static void addTypeParameterToReference(PsiJavaCodeReferenceElement r, PsiType t, PsiElementFactory factory ){
-        r.getParameterList().add(factory.createTypeElement(t));
+    /** Replace "S<A, B>" by "S<A, B, C, D>" : the parameter list of the reference is rewritten once.
+     *  The existing type arguments are kept as they are written ; the new ones are written with their
+     *  qualified names (so that they resolve to the same classes in the sister class), then shortened (imports added if needed). */
+    static void addTypeParametersToReference(PsiJavaCodeReferenceElement r, List<PsiType> types, PsiElementFactory factory ){
+        if (types.isEmpty()) return;
+        final PsiReferenceParameterList parameterList = r.getParameterList();
+        assert (parameterList != null);
+
+        final PsiTypeElement[] existing = parameterList.getTypeParameterElements();
+        final StringBuilder text = new StringBuilder("X<");
+        String sep = "";
+        for (PsiTypeElement e : existing) {
+            text.append(sep).append(e.getText());
+            sep = ", ";
+        }
+        for (PsiType t : types) {
+            text.append(sep).append(t.getCanonicalText());
+            sep = ", ";
+        }
+        text.append('>');
+        final PsiReferenceParameterList newList =
+                (PsiReferenceParameterList) parameterList.replace(factory.createReferenceFromText(text.toString(), r).getParameterList());
+
+        final JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(r.getProject());
+        final PsiTypeElement[] elements = newList.getTypeParameterElements();
+        for (int i = existing.length; i < elements.length; i++) {
+            styleManager.shortenClassReferences(elements[i]);
+        }
     }
 
 
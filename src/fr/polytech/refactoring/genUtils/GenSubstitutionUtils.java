@@ -10,11 +10,8 @@
 package fr.polytech.refactoring.genUtils;
 
 import com.intellij.psi.*;
-import com.intellij.psi.util.PsiTypesUtil;
-import com.intellij.util.IncorrectOperationException;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Copyright 2012, 2016, 2021 Université de Nantes
@@ -42,7 +39,10 @@ public class GenSubstitutionUtils {
      * Return the elements of the method profile (return type or parameter types) to be generified,
      * with the corresponding type variable to replace each element.
      * Also modifies the dependent-substitution that says how each class instantiates the type parameter
-     * of its (direct?) superclass */
+     * of its (direct?) superclass.
+     * The names of the new type parameters are chosen out of boundNames, and added to it.
+     * The algorithm itself is in the anti-unification engine (AntiUnifier), on type terms ; this is only the conversion from/to the PSI.
+     * To anti-unify several methods with shared type parameters, use one AntiUnificationSession for all of them. */
     public static ParamSubstitution antiunify(
             List<PsiMethod> lm,                    /* TODO : can lm be empty? */
             DependentSubstitution theSubstitution, /* this parameter indicates the previously existing intanciation of type variables (from extends statements), for potential reuse. */
@@ -52,124 +52,9 @@ public class GenSubstitutionUtils {
             Collection<String> boundNames
     ){
 
-       assert(lm.size() != 0);
-
-       final ParamSubstitution result = new ParamSubstitution();
-        Map<Map<PsiClass, PsiType>, PsiType> substitutions = new HashMap<>();
-
-       // first, check the return type
-       final Map<PsiClass, PsiType> returnTypesMap = new HashMap<>();
-       for (PsiMethod m: lm){  // collect the return types
-           returnTypesMap.put(m.getContainingClass(), m.getReturnType());
-       }
-
-        // check these types (and modify 'result')
-        PsiType returnType = antiunify_column(returnTypesMap, substitutions, factory, baseNameForTypeVariables, boundNames, -1, theSubstitution);
-        if (returnType != null) {
-            result.put(-1, returnType);
-        }
-
-       // second, check the types of the method parameters
-       for (int pos=0; pos<lm.get(0).getParameterList().getParametersCount(); pos++) { // for each position
-           Map<PsiClass, PsiType> consideredTypesMap = new HashMap<>();
-             for (PsiMethod m: lm){ // collect the types at the considered position in the list of methods
-               consideredTypesMap.put(m.getContainingClass(), m.getParameterList().getParameters()[pos].getType());
-             }
-            // check these types (modify 'result')
-            PsiType argumentType = antiunify_column(consideredTypesMap, substitutions, factory, baseNameForTypeVariables, boundNames, pos, theSubstitution);
-            if (argumentType != null) {
-               result.put(pos, argumentType);
-            }
-       }
-
-       return result ;
-    }
-
-
-    /* If we have the following list of methods to consider :
-     *   in A :   TA0 m (TA1, TA2, TA3)
-     *   in B :   TB0 m (TB1, TB2, TB3)
-     *   in C :   TC0 m (TC1, TC2, TC3)
-     *  we have to unify types in column :
-     *  TA0 with TB0 and TC0, TA1 with TB1 and TC1, and so on.
-     */
-
-    public static PsiType antiunify_column(
-            Map<PsiClass, PsiType> types,
-            Map<Map<PsiClass, PsiType>, PsiType> substitutions,
-            PsiElementFactory factory,
-            String baseNameForTypeVariables,
-            Collection<String> boundNames,
-            int pos,
-            DependentSubstitution megaSubs) {
-        if (megaSubs.containsValue(types)) {
-            PsiTypeParameter typeParameter = getKeyFor(megaSubs, types);
-            return PsiTypesUtil.getClassType(typeParameter);
-        }
-        else if (substitutions.containsKey(types)) {
-            return substitutions.get(types);
-        }
-        else {
-            List<PsiType> listTypes = new ArrayList<>(types.values());
-            if (Comparison.allTypesEquals(listTypes)) {
-                substitutions.put(types, listTypes.get(0));
-                return listTypes.get(0);
-            }
-            else if (!Comparison.allObjectTypes(listTypes)) {
-                throw new IncorrectOperationException("Cannot generify primitive type.");
-            }
-            else if (Comparison.allArrayTypes(listTypes)) {
-                Map<PsiClass, PsiType> noArrays = new HashMap<>();
-                types.forEach((psiClass, psiType) -> noArrays.put(psiClass, ((PsiArrayType) psiType).getComponentType()));
-
-                PsiType typeParameter = antiunify_column(noArrays, substitutions, factory, baseNameForTypeVariables, boundNames, pos, megaSubs);
-                substitutions.put(types, typeParameter);
-                return typeParameter.createArrayType();
-            }
-            else if (!Comparison.allClassTypes(listTypes)) {
-                final String fresh =  GenBuildUtils.buildTypeParameter(pos, baseNameForTypeVariables, boundNames);
-                boundNames.add(fresh);
-                PsiTypeParameter typeParameter = factory.createTypeParameterFromText(fresh, null);
-                megaSubs.put(typeParameter, types);
-                PsiType type = factory.createType(typeParameter, new PsiType[0]);
-                substitutions.put(types, type);
-                return type;
-            }
-            else {
-                List<PsiClassType> classTypes = listTypes.stream().map(t -> (PsiClassType) t).collect(Collectors.toList());
-                List<PsiClassType> rawTypes = classTypes.stream().map(PsiClassType::rawType).collect(Collectors.toList());
-                if (Comparison.allTypesEquals(rawTypes)) {
-                    int size = classTypes.get(0).getParameterCount();
-                    PsiType[] parameters = new PsiType[size];
-                    for (int i = 0; i < size; i++) {
-                        Map<PsiClass, PsiType> typeParameters = new HashMap<>();
-                        int finalI = i;
-                        types.forEach((key, psiType) -> typeParameters.put(key, classTypes.get(classTypes.indexOf(psiType)).getParameters()[finalI]));
-                        PsiType typeParameter = antiunify_column(typeParameters, substitutions, factory, baseNameForTypeVariables, boundNames, pos, megaSubs);
-                        parameters[i] = typeParameter;
-                    }
-                    PsiClassType type = factory.createType(rawTypes.get(0).resolve(), parameters);
-                    substitutions.put(types, type);
-                    return type;
-                }
-                else {
-                    final String fresh =  GenBuildUtils.buildTypeParameter(pos, baseNameForTypeVariables, boundNames);
-                    boundNames.add(fresh);
-                    PsiTypeParameter typeParameter = factory.createTypeParameterFromText(fresh, null);
-                    megaSubs.put(typeParameter, types);
-                    PsiType type = factory.createType(typeParameter, new PsiType[0]);
-                    substitutions.put(types, type);
-                    return type;
-                }
-            }
-        }
-    }
-
-    static <A,B> A getKeyFor (Map <A, B> m , B v) throws Error {
-      for (A s: m.keySet()){
-          if (m.get(s).equals(v)) return s;
-      }
-      throw new Error("Internal error : key not found in map");
+       final List<PsiClass> classes = new ArrayList<>();
+       for (PsiMethod m: lm) classes.add(m.getContainingClass());
+       return new AntiUnificationSession(factory, classes, theSubstitution, boundNames).antiunify(lm, baseNameForTypeVariables);
     }
 
 
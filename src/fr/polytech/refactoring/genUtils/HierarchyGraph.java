@@ -0,0 +1,98 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * The part of the class hierarchy below a superclass, explored on demand, with the results of the
+ * recursive checks (see checkSubClassesHaveSameMethod) memoized per (class, member).
+ * In a hierarchy with diamonds (interfaces, abstract classes), each class is then searched and checked once
+ * per member, instead of once per path.
+ *
+ * Built for one analysis : it does not follow the PSI changes.
+ */
+public class HierarchyGraph {
+
+    private final ConcurrentMap<PsiClass, List<PsiClass>> myDirectSubClasses = new ConcurrentHashMap<PsiClass, List<PsiClass>>();
+    private final ConcurrentMap<Pair<PsiClass, PsiMethod>, Boolean> mySameMethod = new ConcurrentHashMap<Pair<PsiClass, PsiMethod>, Boolean>();
+    private final ConcurrentMap<Pair<PsiClass, PsiClassType>, Boolean> mySameImplements = new ConcurrentHashMap<Pair<PsiClass, PsiClassType>, Boolean>();
+
+
+    public List<PsiClass> getDirectSubClasses(PsiClass c) {
+        List<PsiClass> result = myDirectSubClasses.get(c);
+        if (result == null) {
+            result = new ArrayList<PsiClass>(SisterClassesUtil.findDirectSubClasses(c));
+            myDirectSubClasses.put(c, result);
+        }
+        return result;
+    }
+
+
+    /** Each direct subclass of superClass has the method, or is abstract (or an interface) and its own subclasses have it. */
+    public boolean checkSubClassesHaveSameMethod(PsiMethod m, PsiClass superClass) {
+        final Pair<PsiClass, PsiMethod> key = Pair.create(superClass, m);
+        final Boolean known = mySameMethod.get(key);
+        if (known != null) return known;
+        mySameMethod.put(key, Boolean.FALSE); // in case of a cycle (incorrect code)
+
+        boolean result = true;
+        // Algorithmic skeleton : FORALL_BRANCHES : hasSameMethod
+        for (PsiClass c : getDirectSubClasses(superClass)) {
+            if (!Comparison.hasSameMethod(m, c)) {
+                // OK only if interface/abstract-class and the method is in all subclasses
+                if (!((c.isInterface() || Comparison.isAbstract(c)) && checkSubClassesHaveSameMethod(m, c))) {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        mySameMethod.put(key, result);
+        return result;
+    }
+
+    /** Each direct subclass of superClass implements the interface, or is abstract (or an interface) and its own subclasses implement it. */
+    public boolean checkSubClassesImplementInterface(PsiClassType t, PsiClass superClass) {
+        final Pair<PsiClass, PsiClassType> key = Pair.create(superClass, t);
+        final Boolean known = mySameImplements.get(key);
+        if (known != null) return known;
+        mySameImplements.put(key, Boolean.FALSE); // in case of a cycle (incorrect code)
+
+        boolean result = true;
+        // Algorithmic skeleton : FORALL_BRANCHES : hasSameImplements
+        for (PsiClass c : getDirectSubClasses(superClass)) {
+            if (!Comparison.hasSameImplements(c, t)) {
+                // OK only if interface/abstract-class and the method is in all subclasses
+                if (!((c.isInterface() || Comparison.isAbstract(c)) && checkSubClassesImplementInterface(t, c))) {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        mySameImplements.put(key, result);
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Persistent index of the shapes of the methods declared in the Java source files.
+ * The key is the (name, number of parameters) key of GenAnalysisUtils, the value gives,
+ * for each class of the file declaring such a method, its primitive-position mask and its visibility.
+ *
+ * Two methods with different masks are never compatible (a primitive type can only be anti-unified
+ * with itself, see Compatibility), so a sister class can be ruled out from the index
+ * without loading its PSI.
+ */
+public class MethodShapeIndex extends FileBasedIndexExtension<String, List<MethodShapeIndex.MethodShape>> {
+
+    public static final ID<String, List<MethodShape>> NAME = ID.create("fr.polytech.refactoring.methodShapes");
+
+    /** Bit 0 for the return type, bit i+1 for the parameter i (the positions after 30 are not recorded). */
+    private static final int MASK_POSITIONS = 31;
+
+
+    /** A method declared in a class, as recorded in the index. */
+    public static final class MethodShape {
+        private final String myClassName;
+        private final int myPrimitiveMask;
+        private final int myAccessLevel; // PsiUtil.ACCESS_LEVEL_*
+
+        MethodShape(@NotNull String className, int primitiveMask, int accessLevel) {
+            myClassName = className;
+            myPrimitiveMask = primitiveMask;
+            myAccessLevel = accessLevel;
+        }
+
+        public String getClassName() { return myClassName; }
+
+        public int getPrimitiveMask() { return myPrimitiveMask; }
+
+        public int getAccessLevel() { return myAccessLevel; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MethodShape)) return false;
+            final MethodShape s = (MethodShape) o;
+            return myPrimitiveMask == s.myPrimitiveMask && myAccessLevel == s.myAccessLevel && myClassName.equals(s.myClassName);
+        }
+
+        @Override
+        public int hashCode() {
+            return (myClassName.hashCode() * 31 + myPrimitiveMask) * 31 + myAccessLevel;
+        }
+    }
+
+
+    /* ------ Queries ------ */
+
+    /** Returns false when the index shows that c declares no method compatible with m (see Compatibility.isCompatible),
+     *  true when it may declare one or when the index cannot tell (compiled class, local class, dumb mode). */
+    public static boolean mayHaveCompatibleMethod(@NotNull PsiMethod m, @NotNull PsiClass c, boolean mustBePublic) {
+        final String className = c.getQualifiedName();
+        final PsiFile file = c.getContainingFile();
+        if (className == null || !(file instanceof PsiJavaFile) || file instanceof PsiCompiledElement) return true;
+
+        final VirtualFile vFile = file.getVirtualFile();
+        if (vFile == null || DumbService.isDumb(c.getProject())) return true;
+
+        final String key = GenAnalysisUtils.shapeKey(m.getName(), m.getParameterList().getParametersCount());
+        final int mask = primitiveMask(m);
+        final List<List<MethodShape>> values =
+                FileBasedIndex.getInstance().getValues(NAME, key, GlobalSearchScope.fileScope(c.getProject(), vFile));
+
+        for (List<MethodShape> shapes : values) {
+            for (MethodShape s : shapes) {
+                if (s.myClassName.equals(className)
+                        && s.myPrimitiveMask == mask
+                        && s.myAccessLevel != PsiUtil.ACCESS_LEVEL_PRIVATE
+                        && (!mustBePublic || s.myAccessLevel == PsiUtil.ACCESS_LEVEL_PUBLIC))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    static int primitiveMask(PsiMethod m) {
+        int mask = m.getReturnType() instanceof PsiPrimitiveType ? 1 : 0;
+        final PsiParameter[] parameters = m.getParameterList().getParameters();
+        for (int i = 0; i < parameters.length && i + 1 < MASK_POSITIONS; i++) {
+            if (parameters[i].getType() instanceof PsiPrimitiveType) mask |= 1 << (i + 1);
+        }
+        return mask;
+    }
+
+
+    /* ------ Index extension ------ */
+
+    @NotNull
+    @Override
+    public ID<String, List<MethodShape>> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, List<MethodShape>, FileContent> getIndexer() {
+        return new DataIndexer<String, List<MethodShape>, FileContent>() {
+            @NotNull
+            public Map<String, List<MethodShape>> map(@NotNull FileContent inputData) {
+                final Map<String, List<MethodShape>> result = new HashMap<String, List<MethodShape>>();
+                final PsiFile file = inputData.getPsiFile();
+                if (!(file instanceof PsiJavaFile)) return result;
+
+                file.accept(new JavaRecursiveElementWalkingVisitor() {
+                    @Override
+                    public void visitClass(PsiClass c) {
+                        final String className = c.getQualifiedName();
+                        if (className != null) { // local and anonymous classes are never sister classes
+                            for (PsiMethod m : c.getMethods()) {
+                                final String key = GenAnalysisUtils.shapeKey(m.getName(), m.getParameterList().getParametersCount());
+                                List<MethodShape> l = result.get(key);
+                                if (l == null) {
+                                    l = new ArrayList<MethodShape>(1);
+                                    result.put(key, l);
+                                }
+                                l.add(new MethodShape(className, primitiveMask(m), PsiUtil.getAccessLevel(m.getModifierList())));
+                            }
+                        }
+                        super.visitClass(c);
+                    }
+
+                    @Override
+                    public void visitCodeBlock(PsiCodeBlock block) {} // no need to walk the bodies
+                });
+                return result;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<List<MethodShape>> getValueExternalizer() {
+        return new DataExternalizer<List<MethodShape>>() {
+            public void save(@NotNull DataOutput out, List<MethodShape> shapes) throws IOException {
+                DataInputOutputUtil.writeINT(out, shapes.size());
+                for (MethodShape s : shapes) {
+                    IOUtil.writeUTF(out, s.myClassName);
+                    DataInputOutputUtil.writeINT(out, s.myPrimitiveMask);
+                    DataInputOutputUtil.writeINT(out, s.myAccessLevel);
+                }
+            }
+
+            public List<MethodShape> read(@NotNull DataInput in) throws IOException {
+                final int size = DataInputOutputUtil.readINT(in);
+                final List<MethodShape> shapes = new ArrayList<MethodShape>(size);
+                for (int i = 0; i < size; i++) {
+                    shapes.add(new MethodShape(IOUtil.readUTF(in), DataInputOutputUtil.readINT(in), DataInputOutputUtil.readINT(in)));
+                }
+                return shapes;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+}
@@ -1,10 +1,6 @@
 package fr.polytech.refactoring.genUtils;
 
 import com.intellij.psi.PsiType;
-import com.intellij.psi.PsiTypeParameter;
-
-import java.util.HashMap;
-import java.util.Map;
 /**
  * Copyright 2012, 2016 Université de Nantes
  * Contributor : Julien Cohen (Ascola team, Univ. Nantes)
@@ -22,8 +18,25 @@ import java.util.Map;
  * limitations under the License.
  */
 
-/** This is a type alias, for readability. */
-public class ParamSubstitution
-        extends HashMap<Integer, PsiType>
-        implements Map<Integer, PsiType>
-{}
+/** The types to put in the profile of a method : position (-1 for the return type, i for the i-th parameter) -> type.
+ *  A position without type (null) is not changed. */
+public class ParamSubstitution {
+
+    private final PsiType[] myTypes; // position + 1 -> type
+
+    public ParamSubstitution(int parameterCount) {
+        myTypes = new PsiType[parameterCount + 1];
+    }
+
+    public int getParameterCount() {
+        return myTypes.length - 1;
+    }
+
+    public PsiType get(int pos) {
+        return myTypes[pos + 1];
+    }
+
+    public void put(int pos, PsiType t) {
+        myTypes[pos + 1] = t;
+    }
+}
@@ -0,0 +1,177 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTypesUtil;
+import fr.polytech.refactoring.antiunification.TermDependentSubstitution;
+import fr.polytech.refactoring.antiunification.TermFactory;
+import fr.polytech.refactoring.antiunification.TermSubstitution;
+import fr.polytech.refactoring.antiunification.TypeTerm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Conversions between the PSI types and the type terms of the anti-unification engine.
+ *
+ * A term is converted back to the first PSI type it was built from (when it is still valid),
+ * so that the types written in the code keep their original form. The classes are identified
+ * by their qualified name (a suffix is added when two different classes have the same name).
+ * Wildcards and unresolved types are not decomposed : they are kept as text.
+ */
+public class PsiTermAdapter {
+
+    private final PsiElementFactory myFactory;
+    private final TermFactory myTerms = new TermFactory();
+
+    private final Map<TypeTerm, PsiType> myTypes = new HashMap<TypeTerm, PsiType>();
+    private final Map<PsiClass, String> myClassIds = new HashMap<PsiClass, String>();
+    private final Map<String, PsiClass> myClasses = new HashMap<String, PsiClass>();
+    private final Map<TypeTerm, PsiTypeParameter> myTypeParameters = new HashMap<TypeTerm, PsiTypeParameter>();
+
+
+    public PsiTermAdapter(PsiElementFactory factory) {
+        myFactory = factory;
+    }
+
+    public TermFactory getTermFactory() {
+        return myTerms;
+    }
+
+
+    /* ------ PSI -> terms ------ */
+
+    public TypeTerm toTerm(PsiType t) {
+        final TypeTerm result;
+        if (t instanceof PsiPrimitiveType) {
+            result = myTerms.primitive(t.getCanonicalText());
+        }
+        else if (t instanceof PsiEllipsisType) {
+            result = myTerms.ellipsis(toTerm(((PsiEllipsisType) t).getComponentType()));
+        }
+        else if (t instanceof PsiArrayType) {
+            result = myTerms.array(toTerm(((PsiArrayType) t).getComponentType()));
+        }
+        else if (t instanceof PsiClassType && ((PsiClassType) t).resolve() != null) {
+            final PsiClassType classType = (PsiClassType) t;
+            final PsiType[] parameters = classType.getParameters();
+            final TypeTerm[] arguments = new TypeTerm[parameters.length];
+            for (int i = 0; i < parameters.length; i++) arguments[i] = toTerm(parameters[i]);
+            result = myTerms.classType(classId(classType.resolve()), arguments);
+        }
+        else {
+            result = myTerms.other(t.getCanonicalText());
+        }
+        if (!myTypes.containsKey(result)) myTypes.put(result, t);
+        return result;
+    }
+
+    /** The return type followed by the parameter types. */
+    public TypeTerm[] profile(PsiMethod m) {
+        final PsiParameter[] parameters = m.getParameterList().getParameters();
+        final TypeTerm[] result = new TypeTerm[parameters.length + 1];
+        result[0] = toTerm(m.getReturnType());
+        for (int i = 0; i < parameters.length; i++) result[i + 1] = toTerm(parameters[i].getType());
+        return result;
+    }
+
+    /** The type parameters become variables (with the same name). The substitution must give an instantiation in each of the classes. */
+    public TermDependentSubstitution<PsiClass> toTerms(DependentSubstitution sub, List<PsiClass> classes) {
+        final TermDependentSubstitution<PsiClass> result = new TermDependentSubstitution<PsiClass>(classes);
+        for (Map.Entry<PsiTypeParameter, Map<PsiClass, PsiType>> e : sub.entrySet()) {
+            final TypeTerm variable = myTerms.variable(e.getKey().getName());
+            myTypeParameters.put(variable, e.getKey());
+            final TypeTerm[] instantiation = new TypeTerm[classes.size()];
+            for (int k = 0; k < instantiation.length; k++) {
+                final PsiType t = e.getValue().get(classes.get(k));
+                assert (t != null) : "no instantiation of " + e.getKey().getName() + " in " + classes.get(k).getName();
+                instantiation[k] = toTerm(t);
+            }
+            result.put(variable, instantiation);
+        }
+        return result;
+    }
+
+    private String classId(PsiClass c) {
+        String id = myClassIds.get(c);
+        if (id == null) {
+            final String name = c.getQualifiedName() != null ? c.getQualifiedName() : String.valueOf(c.getName());
+            id = name;
+            for (int i = 1; myClasses.containsKey(id); i++) id = name + "#" + i;
+            myClassIds.put(c, id);
+            myClasses.put(id, c);
+        }
+        return id;
+    }
+
+
+    /* ------ terms -> PSI ------ */
+
+    public PsiType toType(TypeTerm term) {
+        if (term.isVariable()) {
+            final PsiTypeParameter p = myTypeParameters.get(term);
+            assert (p != null) : "unknown type variable " + term;
+            return PsiTypesUtil.getClassType(p);
+        }
+
+        final PsiType known = myTypes.get(term);
+        if (known != null && known.isValid()) return known;
+
+        switch (term.getKind()) {
+            case PRIMITIVE:
+                return myFactory.createPrimitiveType(term.getName());
+            case ARRAY:
+                final PsiType component = toType(term.getComponentType());
+                return term.isEllipsis() ? new PsiEllipsisType(component) : component.createArrayType();
+            case CLASS:
+                final PsiType[] arguments = new PsiType[term.getArgumentCount()];
+                for (int i = 0; i < arguments.length; i++) arguments[i] = toType(term.getArgument(i));
+                return myFactory.createType(myClasses.get(term.getName()), arguments);
+            default:
+                return myFactory.createTypeFromText(term.getName(), null);
+        }
+    }
+
+    public ParamSubstitution toParamSubstitution(TermSubstitution sub) {
+        final ParamSubstitution result = new ParamSubstitution(sub.getParameterCount());
+        for (int pos = -1; pos < sub.getParameterCount(); pos++) {
+            if (sub.get(pos) != null) result.put(pos, toType(sub.get(pos)));
+        }
+        return result;
+    }
+
+    /** Creates a type parameter for each variable of the term substitution which is not in the dependent-substitution yet,
+     *  and adds it with its instantiation to the dependent-substitution. */
+    public void addNewTypeParameters(TermDependentSubstitution<PsiClass> termSub, DependentSubstitution sub) {
+        for (TypeTerm variable : termSub.getVariables()) {
+            if (myTypeParameters.containsKey(variable)) continue;
+            myTypeParameters.put(variable, myFactory.createTypeParameterFromText(variable.getName(), null));
+        }
+        final List<PsiClass> classes = termSub.getClasses();
+        for (TypeTerm variable : termSub.getVariables()) {
+            final PsiTypeParameter p = myTypeParameters.get(variable);
+            if (sub.containsKey(p)) continue;
+            final TypeTerm[] terms = termSub.get(variable);
+            final Map<PsiClass, PsiType> instantiation = new HashMap<PsiClass, PsiType>();
+            for (int k = 0; k < terms.length; k++) instantiation.put(classes.get(k), toType(terms[k]));
+            sub.put(p, instantiation);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import com.intellij.util.IncorrectOperationException;
+
+import java.util.*;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Selects, among a fixed list of sister classes, those which have all the selected members
+ * (same result as ExtractSuperClassMultiUtil.filterSisterClasses).
+ *
+ * For each member, the sister classes which have a compatible member are computed once and kept in a bitset
+ * (bit i for the i-th sister class), so that a new selection of members is only an intersection of bitsets.
+ * Used by the extract superclass dialog, where the selection changes at each checkbox toggle.
+ */
+public class SisterClassesFilter {
+
+    private final List<PsiClass> mySisterClasses;
+    private final boolean myUseGenericUnification;
+    private final CompatibilityMatrix myMatrix; // only used with generic unification
+
+    private final Map<MemberInfo, BitSet> myCompatible = new HashMap<MemberInfo, BitSet>();
+    private final Map<MemberInfo, BitSet> myAmbiguous = new HashMap<MemberInfo, BitSet>();   // generic unification : the classes where the member is overloaded
+
+
+    public SisterClassesFilter(Collection<PsiClass> sisterClasses, boolean useGenericUnification, CompatibilityMatrix matrix) {
+        mySisterClasses = new ArrayList<PsiClass>(sisterClasses);
+        myUseGenericUnification = useGenericUnification;
+        myMatrix = matrix;
+    }
+
+    public SisterClassesFilter(Collection<PsiClass> sisterClasses, boolean useGenericUnification) {
+        this(sisterClasses, useGenericUnification, sisterClasses.isEmpty() ? null : new CompatibilityMatrix(null, sisterClasses));
+    }
+
+    public List<PsiClass> getSisterClasses() {
+        return mySisterClasses;
+    }
+
+    public CompatibilityMatrix getCompatibilityMatrix() {
+        return myMatrix;
+    }
+
+
+    /** The sister classes which have all the selected members, in the order of the sister classes.
+     *  As in hasCompatibleMembers, an overloading is reported (IncorrectOperationException) for a class
+     *  only if the members selected before the overloaded one are all found in that class. */
+    public List<PsiClass> filter(Iterable<MemberInfo> selectedMemberInfos) {
+        final BitSet selected = new BitSet(mySisterClasses.size());
+        selected.set(0, mySisterClasses.size());
+
+        for (MemberInfo member : selectedMemberInfos) {
+            final BitSet compatible = getCompatible(member);
+            final BitSet ambiguous = myAmbiguous.get(member);
+            if (ambiguous != null && ambiguous.intersects(selected)) {
+                final BitSet reported = (BitSet) ambiguous.clone();
+                reported.and(selected);
+                final PsiClass c = mySisterClasses.get(reported.nextSetBit(0));
+                throw new IncorrectOperationException(myMatrix.getCell((PsiMethod) member.getMember(), c).getFailure().toString());
+            }
+            selected.and(compatible);
+        }
+
+        final List<PsiClass> result = new ArrayList<PsiClass>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) result.add(mySisterClasses.get(i));
+        return result;
+    }
+
+
+    private BitSet getCompatible(MemberInfo member) {
+        BitSet compatible = myCompatible.get(member);
+        if (compatible == null) {
+            compatible = new BitSet(mySisterClasses.size());
+            BitSet ambiguous = null;
+            final List<MemberInfo> single = Collections.singletonList(member);
+            for (int i = 0; i < mySisterClasses.size(); i++) {
+                final PsiClass c = mySisterClasses.get(i);
+                if (!myUseGenericUnification) {
+                    if (Comparison.hasMembers(c, single)) compatible.set(i);
+                }
+                else {
+                    try {
+                        if (myMatrix.hasCompatibleMembers(c, single)) compatible.set(i);
+                    }
+                    catch (AmbiguousOverloading e) {
+                        if (ambiguous == null) ambiguous = new BitSet(mySisterClasses.size());
+                        ambiguous.set(i);
+                    }
+                }
+            }
+            // (an IncorrectOperationException for an unsupported member is not cached : it is raised again at each selection)
+            myCompatible.put(member, compatible);
+            if (ambiguous != null) myAmbiguous.put(member, ambiguous);
+        }
+        return compatible;
+    }
+}
@@ -0,0 +1,119 @@
+package fr.polytech.refactoring.genUtils;
+
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.psi.JavaDirectoryService;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiPackage;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopes;
+import com.intellij.psi.search.PackageScope;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Where the sister classes (the direct subclasses of the target superclass) are looked for.
+ * The scope is relative to a class (the superclass for pull up) : its directory, its package, its module...
+ * The choice is kept in the IDE properties (see getCurrent / setCurrent).
+ */
+public enum SisterClassesScope {
+
+    DIRECTORY("Directory"),
+    PACKAGE("Package"),
+    MODULE("Module"),
+    MODULE_WITH_DEPENDENTS("Module with dependents"),
+    PROJECT("Project");
+
+    private static final String PROPERTY_KEY = "fr.polytech.refactoring.sisterClassesScope";
+    private static final SimpleModificationTracker ourScopeTracker = new SimpleModificationTracker(); // incremented by setCurrent
+
+    private final String myPresentableName;
+
+    SisterClassesScope(String presentableName) {
+        myPresentableName = presentableName;
+    }
+
+    @Override
+    public String toString() {
+        return myPresentableName;
+    }
+
+
+    /** The scope chosen by the user (directory by default). */
+    public static SisterClassesScope getCurrent() {
+        final String value = PropertiesComponent.getInstance().getValue(PROPERTY_KEY, DIRECTORY.name());
+        try {
+            return valueOf(value);
+        }
+        catch (IllegalArgumentException e) {
+            return DIRECTORY;
+        }
+    }
+
+    public static void setCurrent(SisterClassesScope scope) {
+        if (scope == getCurrent()) return;
+        PropertiesComponent.getInstance().setValue(PROPERTY_KEY, scope.name(), DIRECTORY.name());
+        ourScopeTracker.incModificationCount();
+    }
+
+    /** Changes when the current scope changes : a dependency for the cached values computed with the current scope. */
+    public static ModificationTracker getModificationTracker() {
+        return ourScopeTracker;
+    }
+
+
+    /** The search scope around the given class. Falls back to a wider scope when the class has no package or no module. */
+    public GlobalSearchScope getSearchScope(PsiClass anchor) {
+        final Object element = getScopeElement(anchor);
+        if (element instanceof PsiDirectory) return GlobalSearchScopes.directoryScope((PsiDirectory) element, false);
+        if (element instanceof PsiPackage)   return PackageScope.packageScope((PsiPackage) element, false);
+        if (element instanceof Module) {
+            return this == MODULE_WITH_DEPENDENTS ? GlobalSearchScope.moduleWithDependentsScope((Module) element)
+                                                  : GlobalSearchScope.moduleScope((Module) element);
+        }
+        return GlobalSearchScope.projectScope(anchor.getProject());
+    }
+
+    /** Two classes with the same key have the same search scope (used to cache the search results). */
+    public Object getCacheKey(PsiClass anchor) {
+        return Pair.create(this, getScopeElement(anchor));
+    }
+
+    /* The directory, package, module or project which defines the scope. */
+    private Object getScopeElement(PsiClass anchor) {
+        switch (this) {
+            case DIRECTORY:
+                return SisterClassesUtil.getDirectoryOfClass(anchor);
+            case PACKAGE:
+                final PsiDirectory dir = SisterClassesUtil.getDirectoryOfClass(anchor);
+                final PsiPackage aPackage = dir == null ? null : JavaDirectoryService.getInstance().getPackage(dir);
+                return aPackage != null ? aPackage : dir;
+            case MODULE:
+            case MODULE_WITH_DEPENDENTS:
+                final Module module = ModuleUtilCore.findModuleForPsiElement(anchor);
+                return module != null ? module : anchor.getProject();
+            default:
+                return anchor.getProject();
+        }
+    }
+}
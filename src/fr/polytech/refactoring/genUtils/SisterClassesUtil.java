@@ -1,14 +1,26 @@
 package fr.polytech.refactoring.genUtils;
 
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiJavaFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScopes;
-import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.search.searches.DirectClassInheritorsSearch;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Copyright 2012, 2016 Université de Nantes
@@ -35,15 +47,35 @@ public class SisterClassesUtil {
     /* ------ Lookup for sub-classes / sister-classes  ------ */
 
 
+    /** The direct subclasses of the superclass, in the scope chosen by the user (see SisterClassesScope). */
+    public static Collection<PsiClass> findDirectSubClasses(@NotNull PsiClass superClass) {
+        return findDirectSubClasses(superClass, SisterClassesScope.getCurrent(), superClass);
+    }
+
+    /* The result is cached (see getDirectSubClassesCache) and must not be modified. */
+    public static Collection<PsiClass> findDirectSubClasses(@NotNull PsiClass superClass, SisterClassesScope scope, PsiClass anchor) {
+        final Pair<PsiClass, Object> key = Pair.create(superClass, scope.getCacheKey(anchor));
+        final List<PsiClass> result = getDirectSubClassesCache(superClass.getProject()).get(key);
+        return result != null ? result : searchDirectSubClasses(superClass, key, scope.getSearchScope(anchor));
+    }
+
     public static Collection<PsiClass> findDirectSubClassesInDirectory(@NotNull PsiClass superClass) {
         final PsiDirectory superDir = getDirectoryOfClass (superClass);
         return findDirectSubClassesInDirectory(superClass, superDir);
     }
 
+    /* The result is cached (see getDirectSubClassesCache) and must not be modified. */
     public static Collection<PsiClass> findDirectSubClassesInDirectory(@NotNull PsiClass superClass, PsiDirectory dir) {
+        final Pair<PsiClass, Object> key = Pair.create(superClass, (Object) Pair.create(SisterClassesScope.DIRECTORY, dir)); // same key as SisterClassesScope.DIRECTORY
+        final List<PsiClass> result = getDirectSubClassesCache(superClass.getProject()).get(key);
+        return result != null ? result : searchDirectSubClasses(superClass, key, GlobalSearchScopes.directoryScope(dir, false));
+    }
 
-        final GlobalSearchScope dirScope = GlobalSearchScopes.directoryScope(dir, false);
-        return ClassInheritorsSearch.search(superClass, dirScope, false).findAll();
+    /* Search with the direct inheritors index (stubs) and put the result in the cache. */
+    private static List<PsiClass> searchDirectSubClasses(PsiClass superClass, Pair<PsiClass, Object> key, GlobalSearchScope scope) {
+        final List<PsiClass> result = Collections.unmodifiableList(new ArrayList<PsiClass>(DirectClassInheritorsSearch.search(superClass, scope, true).findAll()));
+        final List<PsiClass> previous = getDirectSubClassesCache(superClass.getProject()).putIfAbsent(key, result);
+        return previous != null ? previous : result;
     }
 
     public static Collection<PsiClass> findSisterClassesInDirectory(PsiClass subclass) {
@@ -56,4 +88,24 @@ public class SisterClassesUtil {
         return ((PsiJavaFile) c.getContainingFile()).getContainingDirectory();
     }
 
+
+    /* ------ Cache of the direct sub-classes ------ */
+
+    private static final Key<CachedValue<ConcurrentMap<Pair<PsiClass, Object>, List<PsiClass>>>> DIRECT_SUBCLASSES_KEY =
+            Key.create("fr.polytech.refactoring.genUtils.directSubClasses");
+
+    /* Project-level map (superclass, scope key) -> direct subclasses (the scope key is given by SisterClassesScope.getCacheKey).
+       The whole map is dropped when the Java structure of the project changes
+       (a class is added, removed or has its extends/implements list changed). */
+    private static ConcurrentMap<Pair<PsiClass, Object>, List<PsiClass>> getDirectSubClassesCache(final Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, DIRECT_SUBCLASSES_KEY,
+                new CachedValueProvider<ConcurrentMap<Pair<PsiClass, Object>, List<PsiClass>>>() {
+                    public Result<ConcurrentMap<Pair<PsiClass, Object>, List<PsiClass>>> compute() {
+                        return Result.<ConcurrentMap<Pair<PsiClass, Object>, List<PsiClass>>>create(
+                                new ConcurrentHashMap<Pair<PsiClass, Object>, List<PsiClass>>(),
+                                PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT);
+                    }
+                }, false);
+    }
+
 }
@@ -0,0 +1,120 @@
+package fr.polytech.refactoring.inspections;
+
+import com.intellij.codeInspection.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
+import fr.polytech.refactoring.genUtils.SisterClassesScope;
+import fr.polytech.refactoring.memberPullUp.JavaPullUpGenHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Reports the methods that can be pulled up with generics in the direct superclass of their class
+ * (see CompatibilityMatrix.canGenMember), with a quick-fix that opens the pull-up-gen dialog.
+ *
+ * The methods which already override a method are not reported, nor the classes out of the search scope of the sister classes.
+ * The compatibility matrix of the superclass is cached on the superclass and shared by all its subclasses.
+ * It only depends on the Java structure of the project (signatures, extends lists) and on the search scope of the sister classes :
+ * editing a method body does not recompute it in the highlighting pass, and its computation can be cancelled.
+ */
+public class GenerifiablePullUpInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    private static final Key<CachedValue<CompatibilityMatrix>> COMPATIBILITY_MATRIX_KEY =
+            Key.create("fr.polytech.refactoring.inspections.compatibilityMatrix");
+
+
+    @Nullable
+    @Override
+    public ProblemDescriptor[] checkMethod(@NotNull PsiMethod method, @NotNull InspectionManager manager, boolean isOnTheFly) {
+        final PsiClass aClass = method.getContainingClass();
+        final PsiIdentifier name = method.getNameIdentifier();
+        if (aClass == null || name == null || !isCandidate(method)) return null;
+
+        final PsiClass superClass = findTargetSuperClass(aClass);
+        if (superClass == null) return null;
+        final CompatibilityMatrix matrix = getCompatibilityMatrix(superClass);
+        if (matrix.getSisterClasses().size() < 2) return null; // with only one subclass, nothing to generify
+        if (!matrix.getSisterClasses().contains(aClass)) return null; // not in the current search scope of the sister classes
+        if (!matrix.canGenMember(new MemberInfo(method))) return null;
+
+        return new ProblemDescriptor[]{
+                manager.createProblemDescriptor(name,
+                        "Method <code>#ref</code> can be pulled up with generics into " + superClass.getName(),
+                        new PullUpGenFix(), ProblemHighlightType.GENERIC_ERROR_OR_WARNING, isOnTheFly)};
+    }
+
+    /* The methods which override another method (toString, an interface method...) are already declared above their class. */
+    private static boolean isCandidate(PsiMethod m) {
+        return !m.isConstructor()
+                && !m.hasModifierProperty(PsiModifier.PRIVATE)
+                && !m.hasModifierProperty(PsiModifier.STATIC)
+                && m.findSuperMethods().length == 0;
+    }
+
+    /** The sister classes are those of the direct superclass, when it is in the project sources. */
+    @Nullable
+    private static PsiClass findTargetSuperClass(PsiClass aClass) {
+        if (aClass.isInterface() || aClass.isEnum() || aClass.getQualifiedName() == null) return null;
+        final PsiClass superClass = aClass.getSuperClass();
+        if (superClass == null || superClass instanceof PsiCompiledElement || !superClass.getManager().isInProject(superClass))
+            return null;
+        return superClass;
+    }
+
+    /* The cells are computed on demand (only for the methods of the highlighted classes) and kept with the matrix,
+       which is shared by all the sister classes and only depends on the Java structure and on the scope of the sister classes. */
+    @NotNull
+    static CompatibilityMatrix getCompatibilityMatrix(@NotNull final PsiClass superClass) {
+        return CachedValuesManager.getCachedValue(superClass, COMPATIBILITY_MATRIX_KEY, new CachedValueProvider<CompatibilityMatrix>() {
+            public Result<CompatibilityMatrix> compute() {
+                return Result.create(CompatibilityMatrix.forSuperClass(superClass),
+                        PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT, // signatures changed, subclasses added or removed
+                        SisterClassesScope.getModificationTracker());
+            }
+        });
+    }
+
+
+    private static class PullUpGenFix implements LocalQuickFix {
+
+        @NotNull
+        public String getFamilyName() {
+            return "Pull up with generics";
+        }
+
+        public boolean startInWriteAction() {
+            return false; // the refactoring opens a dialog
+        }
+
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            final PsiElement element = descriptor.getPsiElement();
+            final PsiElement method = element == null ? null : element.getParent();
+            if (!(method instanceof PsiMethod)) return;
+            new JavaPullUpGenHandler().invoke(project, new PsiElement[]{method}, null);
+        }
+    }
+}
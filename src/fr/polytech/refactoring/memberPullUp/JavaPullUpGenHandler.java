@@ -44,12 +44,14 @@ import com.intellij.refactoring.memberPullUp.PullUpConflictsUtil;
 import com.intellij.refactoring.ui.ConflictsDialog;
 import com.intellij.refactoring.util.CommonRefactoringUtil;
 import com.intellij.refactoring.util.RefactoringHierarchyUtil;
+import com.intellij.refactoring.util.classMembers.InterfaceContainmentVerifier;
 import com.intellij.refactoring.util.classMembers.MemberInfo;
 import com.intellij.refactoring.util.classMembers.MemberInfoStorage;
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class JavaPullUpGenHandler implements RefactoringActionHandler, PullUpGenDialog.Callback, ElementsHandler {
@@ -176,10 +178,7 @@ public class JavaPullUpGenHandler implements RefactoringActionHandler, PullUpGen
         ApplicationManager.getApplication().runReadAction(new Runnable() {
           @Override
           public void run() {
-            final PsiDirectory targetDirectory = superClass.getContainingFile().getContainingDirectory();
-            final PsiPackage targetPackage = targetDirectory != null ? JavaDirectoryService.getInstance().getPackage(targetDirectory) : null;
-            conflicts
-              .putAllValues(PullUpConflictsUtil.checkConflicts(memberInfos, mySubclass, superClass, targetPackage, targetDirectory, dialog.getContainmentVerifier()));
+            conflicts.putAllValues(collectConflicts(memberInfos, mySubclass, superClass, dialog.getContainmentVerifier()));
           }
         });
 
@@ -195,6 +194,26 @@ public class JavaPullUpGenHandler implements RefactoringActionHandler, PullUpGen
     return true;
   }
 
+  /** The conflicts checked before the refactoring (visibility, types not accessible from the target...). Must be called in a read action. */
+  @NotNull
+  public static MultiMap<PsiElement, String> collectConflicts(MemberInfo[] memberInfos, PsiClass sourceClass, PsiClass superClass,
+                                                              InterfaceContainmentVerifier containmentVerifier) {
+    final PsiDirectory targetDirectory = superClass.getContainingFile().getContainingDirectory();
+    final PsiPackage targetPackage = targetDirectory != null ? JavaDirectoryService.getInstance().getPackage(targetDirectory) : null;
+    return PullUpConflictsUtil.checkConflicts(memberInfos, sourceClass, superClass, targetPackage, targetDirectory, containmentVerifier);
+  }
+
+  /** Same as above, when the members are not selected in a dialog. */
+  @NotNull
+  public static MultiMap<PsiElement, String> collectConflicts(final MemberInfo[] memberInfos, PsiClass sourceClass, PsiClass superClass) {
+    return collectConflicts(memberInfos, sourceClass, superClass, new InterfaceContainmentVerifier() {
+      @Override
+      public boolean checkedInterfacesContain(PsiMethod psiMethod) {
+        return PullUpGenProcessor.checkedInterfacesContain(Arrays.asList(memberInfos), psiMethod);
+      }
+    });
+  }
+
   private boolean checkWritable(PsiClass superClass, MemberInfo[] infos) {
     if (!CommonRefactoringUtil.checkReadOnlyStatus(myProject, superClass)) return false;
     for (MemberInfo info : infos) {
@@ -33,7 +33,6 @@ package fr.polytech.refactoring.memberPullUp;
 import com.intellij.codeInsight.AnnotationUtil;
 import com.intellij.codeInsight.ChangeContextUtil;
 import com.intellij.codeInsight.PsiEquivalenceUtil;
-import com.intellij.codeInsight.intention.AddAnnotationFix;
 import com.intellij.lang.Language;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
@@ -85,6 +84,10 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
   private final ExplicitSuperDeleter myExplicitSuperDeleter;
 
   protected Collection<PsiClass> sisterClasses = null;   // julien
+  private final CompatibilityMatrix myCompatibilityMatrix;
+  private final PhaseTimings myPhaseTimings;
+  private final Set<PsiMethod> myMethodsToAnnotate = new LinkedHashSet<PsiMethod>(); // sister methods which get @Override once all the members are moved
+  private AntiUnificationSession myAntiUnification = null; // shared by all the members : type parameters of the superclass, with those introduced for the members moved so far
 
   public JavaPullUpGenHelper(PullUpGenData data) {
     myProject = data.getProject();
@@ -98,6 +101,8 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
     myThisSuperAdjuster = new QualifiedThisSuperAdjuster();
     myExplicitSuperDeleter = new ExplicitSuperDeleter();
     sisterClasses = data.getSisterClasses();
+    myCompatibilityMatrix = data.getCompatibilityMatrix();
+    myPhaseTimings = data.getPhaseTimings();
   }
 
   @Override
@@ -214,7 +219,6 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
   }
 
   private  void doMoveMethod(PsiSubstitutor substitutor, MemberInfo info) {
-    List<String> boundNames =  GenSubstitutionUtils.boundTypeNames(myTargetSuperClass);
     PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(myProject);
     PsiMethod method = (PsiMethod)info.getMember();
     PsiMethod sibling = method;
@@ -248,24 +252,35 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
 
       // begin Julien
 
+      long phaseStart = myPhaseTimings.start();
+
       // 1) collect the sister methods (methods with the same type skeleton in sister classes).
       final List<PsiMethod> sisterMethods =
-              // TODO : make that efficient (classes are traversed twice)
-              GenAnalysisUtils.findCompatibleMethods(method, sisterClasses);
+              myCompatibilityMatrix.findCompatibleMethods(method, sisterClasses); // already matched when the sister classes were computed
+      phaseStart = myPhaseTimings.lap("1 collect sister methods", phaseStart);
 
 
 
       // 2)find which types have to be parameterized
 
-      final DependentSubstitution initialParameters = GenSubstitutionUtils.computePreviousSub(this.myTargetSuperClass, sisterClasses); // used later to know the type parameters of the initial clases TODO: improve that
-      final DependentSubstitution theMegaSubst      = GenSubstitutionUtils.computePreviousSub(this.myTargetSuperClass, sisterClasses);   // TODO: clone initialParameters above?
+      // The substitution is computed from the extends statements for the first member only, then it grows with each member :
+      // a type parameter introduced for a member is reused for the next ones when they need the same instantiation.
+      if (myAntiUnification == null) {
+        myAntiUnification = new AntiUnificationSession(elementFactory, sisterClasses,
+                                                       GenSubstitutionUtils.computePreviousSub(this.myTargetSuperClass, sisterClasses),
+                                                       GenSubstitutionUtils.boundTypeNames(this.myTargetSuperClass));
+      }
+      final DependentSubstitution previousParameters = new DependentSubstitution(); // used later to know the type parameters introduced for this member
+      previousParameters.putAll(myAntiUnification.getSubstitution());
 
 
-      final ParamSubstitution sub = GenSubstitutionUtils.antiunify(sisterMethods, theMegaSubst, method.getName(), elementFactory, boundNames); // TODO : fix that (empty substitution)
+      final ParamSubstitution sub = myAntiUnification.antiunify(sisterMethods, method.getName()); // TODO : fix that (empty substitution)
+      phaseStart = myPhaseTimings.lap("2 anti-unification", phaseStart);
 
 
       // 3) build the abstract method
       RefactoringUtil.makeMethodAbstract(myTargetSuperClass, methodCopy);
+      phaseStart = myPhaseTimings.lap("3 make abstract", phaseStart);
 
 
       // 4) generify the abstract method
@@ -273,16 +288,17 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
 
       // 5) ??
       RefactoringUtil.replaceMovedMemberTypeParameters(methodCopy, PsiUtil.typeParametersIterable(mySourceClass), substitutor, elementFactory);
+      phaseStart = myPhaseTimings.lap("4-5 generify", phaseStart);
 
       // 6) process javadoc
       myJavaDocPolicy.processCopiedJavaDoc(methodCopy.getDocComment(), method.getDocComment(), isOriginalMethodAbstract);
+      phaseStart = myPhaseTimings.lap("6 javadoc", phaseStart);
 
 
       // 7) Add type parameters to the superclass
-      DependentSubstitution newParameters = DependentSubstitution.difference(theMegaSubst, initialParameters);
-      for (PsiTypeParameter t: newParameters.keySet()){
-        myTargetSuperClass.getTypeParameterList().add(t);
-      }
+      DependentSubstitution newParameters = DependentSubstitution.difference(myAntiUnification.getSubstitution(), previousParameters);
+      GenBuildUtils.addTypeParametersToClass(myTargetSuperClass, newParameters.keySet(), elementFactory); // same order as in the extends statements (step 9)
+      phaseStart = myPhaseTimings.lap("7 add type parameters", phaseStart);
 
 
       // 8) Add the new abstract method in the superclass (and get the new resulting method).
@@ -294,9 +310,11 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
         movedElement =
           anchor != null ? (PsiMember)myTargetSuperClass.addBefore(methodCopy, anchor) : (PsiMember)myTargetSuperClass.add(methodCopy);
       }
+      phaseStart = myPhaseTimings.lap("8 insert method", phaseStart);
 
       // 9) Add the parameters in sisterclasses extends statements
       GenBuildUtils.updateExtendsStatementsInSisterClasses(newParameters, myTargetSuperClass, elementFactory);
+      phaseStart = myPhaseTimings.lap("9 rewrite extends", phaseStart);
 
 
       // end Julien
@@ -307,9 +325,7 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
       if (styleSettings.INSERT_OVERRIDE_ANNOTATION) {
         // (rem Julien) @override appears in 1.5 but applies to methods coming from interfaces only since 1.6
         if (PsiUtil.isLanguageLevel5OrHigher(mySourceClass) && !myIsTargetInterface || PsiUtil.isLanguageLevel6OrHigher(mySourceClass)) {
-          for (PsiMethod m : sisterMethods){ //Julien : added annotation for all sister methods
-            new AddAnnotationFix(Override.class.getName(), m).invoke(method.getProject(), null, mySourceClass.getContainingFile());
-          }
+          myMethodsToAnnotate.addAll(sisterMethods); // Julien : annotation for all sister methods (added by addPendingOverrideAnnotations)
         }
       }
       if (!PsiUtil.isLanguageLevel6OrHigher(mySourceClass) && myIsTargetInterface) {
@@ -321,12 +337,15 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
         }
         deleteOverrideAnnotationIfFound(method);
       }
+      phaseStart = myPhaseTimings.lap("10 override annotations", phaseStart);
+
       // (rem Julien) The processing of the current element to pull-up is finished (other elements to pull-up can be processed).
       myMembersAfterMove.add(movedElement);
       if (isOriginalMethodAbstract) {
         method.delete();
         // FIXME : do the same in sister classes ?
       }
+      myPhaseTimings.lap("11 cleanup", phaseStart);
     }
     else {
       // (rem Julien) Here, the target superclass is neither abstract nor an interface
@@ -390,11 +409,11 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
             throws MemberNotImplemented, AmbiguousOverloading {
         if (membersToMove.length == 0) return new HashSet(); // Empty
 
-        Collection <PsiClass> baseSet = GenAnalysisUtils.findSubClassesWithCompatibleMember(membersToMove[0], this.myTargetSuperClass);
+        Collection <PsiClass> baseSet = myCompatibilityMatrix.findSubClassesWithCompatibleMember(membersToMove[0]);
 
         Collection <PsiClass> tmpSet;
         for(MemberInfo m : membersToMove){
-            tmpSet = GenAnalysisUtils.findSubClassesWithCompatibleMember(m, this.myTargetSuperClass);
+            tmpSet = myCompatibilityMatrix.findSubClassesWithCompatibleMember(m);
             if (!baseSet.equals(tmpSet))
                 throw new IncorrectOperationException("These members cannot be pulled-up from the same set of sister classes, please pull them up with two separate refactoring operations."); // FIXME : should be less strict.
             // question: que faire si les listes sont différentes pour différentes membres?
@@ -411,6 +430,40 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
     }
   }
 
+  /* Adds @Override to the sister methods collected by doMoveMethod, for all the pulled-up members at once, file by file.
+     The annotation is built once per class : "@Override" when that name resolves to java.lang.Override there (no import needed),
+     the qualified name otherwise. The formatting is left to the postponed formatting of the command (once per file). */
+  @Override
+  public void addPendingOverrideAnnotations() {
+    final Map<PsiFile, List<PsiMethod>> methodsByFile = new LinkedHashMap<PsiFile, List<PsiMethod>>();
+    for (PsiMethod m : myMethodsToAnnotate) {
+      if (!m.isValid() || m.getModifierList().findAnnotation(CommonClassNames.JAVA_LANG_OVERRIDE) != null) continue; // deleted, or already annotated
+      List<PsiMethod> l = methodsByFile.get(m.getContainingFile());
+      if (l == null) {
+        l = new ArrayList<PsiMethod>();
+        methodsByFile.put(m.getContainingFile(), l);
+      }
+      l.add(m);
+    }
+    myMethodsToAnnotate.clear();
+
+    final PsiElementFactory factory = JavaPsiFacade.getElementFactory(myProject);
+    final PsiResolveHelper resolveHelper = JavaPsiFacade.getInstance(myProject).getResolveHelper();
+    for (List<PsiMethod> methods : methodsByFile.values()) {
+      final Map<PsiClass, PsiAnnotation> annotations = new HashMap<PsiClass, PsiAnnotation>();
+      for (PsiMethod m : methods) {
+        PsiAnnotation annotation = annotations.get(m.getContainingClass());
+        if (annotation == null) {
+          final PsiClass resolved = resolveHelper.resolveReferencedClass("Override", m);
+          final boolean shortName = resolved != null && CommonClassNames.JAVA_LANG_OVERRIDE.equals(resolved.getQualifiedName());
+          annotation = factory.createAnnotationFromText("@" + (shortName ? "Override" : CommonClassNames.JAVA_LANG_OVERRIDE), m);
+          annotations.put(m.getContainingClass(), annotation);
+        }
+        m.getModifierList().addAfter(annotation, null);
+      }
+    }
+  }
+
   @Override
   public void moveFieldInitializations(LinkedHashSet<PsiField> movedFields) {
     PsiMethod[] constructors = myTargetSuperClass.getConstructors();
@@ -453,12 +506,18 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
   private void tryToMoveInitializers(PsiMethod constructor, HashSet<PsiMethod> subConstructors, LinkedHashSet<PsiField> movedFields) throws IncorrectOperationException {
     final LinkedHashMap<PsiField, Initializer> fieldsToInitializers = new LinkedHashMap<PsiField, Initializer>();
     boolean anyFound = false;
+    final Map<PsiMethod, SubConstructorIndex> subConstructorIndexes = new HashMap<PsiMethod, SubConstructorIndex>(); // built on first use, for all the fields
 
     for (PsiField field : movedFields) {
       PsiStatement commonInitializer = null;
       final ArrayList<PsiElement> fieldInitializersToRemove = new ArrayList<PsiElement>();
       for (PsiMethod subConstructor : subConstructors) {
-        commonInitializer = hasCommonInitializer(commonInitializer, subConstructor, field, fieldInitializersToRemove);
+        SubConstructorIndex index = subConstructorIndexes.get(subConstructor);
+        if (index == null) {
+          index = new SubConstructorIndex(subConstructor, movedFields);
+          subConstructorIndexes.put(subConstructor, index);
+        }
+        commonInitializer = hasCommonInitializer(commonInitializer, index, field, fieldInitializersToRemove);
         if (commonInitializer == null) break;
       }
       if (commonInitializer != null) {
@@ -580,10 +639,9 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
   }
 
   @Nullable
-  private PsiStatement hasCommonInitializer(PsiStatement commonInitializer, PsiMethod subConstructor, PsiField field, ArrayList<PsiElement> statementsToRemove) {
-    final PsiCodeBlock body = subConstructor.getBody();
-    if (body == null) return null;
-    final PsiStatement[] statements = body.getStatements();
+  private PsiStatement hasCommonInitializer(PsiStatement commonInitializer, SubConstructorIndex subConstructor, PsiField field, ArrayList<PsiElement> statementsToRemove) {
+    final PsiStatement[] statements = subConstructor.statements;
+    if (statements == null) return null;
 
     // Algorithm: there should be only one write usage of field in a subConstructor,
     // and in that usage field must be a target of top-level assignment, and RHS of assignment
@@ -592,80 +650,107 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
     // There should be no usages before that initializer, and there should be
     // no write usages afterwards.
     PsiStatement commonInitializerCandidate = null;
-    for (PsiStatement statement : statements) {
-      final HashSet<PsiStatement> collectedStatements = new HashSet<PsiStatement>();
-      collectPsiStatements(statement, collectedStatements);
-      boolean doLookup = true;
-      for (PsiStatement collectedStatement : collectedStatements) {
-        if (collectedStatement instanceof PsiExpressionStatement) {
-          final PsiExpression expression = ((PsiExpressionStatement)collectedStatement).getExpression();
-          if (expression instanceof PsiAssignmentExpression) {
-            final PsiAssignmentExpression assignmentExpression = (PsiAssignmentExpression)expression;
-            final PsiExpression lExpression = assignmentExpression.getLExpression();
-            if (lExpression instanceof PsiReferenceExpression) {
-              final PsiReferenceExpression lRef = (PsiReferenceExpression)lExpression;
-              if (lRef.getQualifierExpression() == null || lRef.getQualifierExpression() instanceof PsiThisExpression) {
-                final PsiElement resolved = lRef.resolve();
-                if (resolved == field) {
-                  doLookup = false;
-                  if (commonInitializerCandidate == null) {
-                    final PsiExpression initializer = assignmentExpression.getRExpression();
-                    if (initializer == null) return null;
-                    if (commonInitializer == null) {
-                      final IsMovableInitializerVisitor visitor = new IsMovableInitializerVisitor();
-                      statement.accept(visitor);
-                      if (visitor.isMovable()) {
-                        ChangeContextUtil.encodeContextInfo(statement, true);
-                        PsiStatement statementCopy = (PsiStatement)statement.copy();
-                        ChangeContextUtil.clearContextInfo(statement);
-                        statementsToRemove.add(statement);
-                        commonInitializerCandidate = statementCopy;
-                      }
-                      else {
-                        return null;
-                      }
-                    }
-                    else {
-                      if (PsiEquivalenceUtil.areElementsEquivalent(commonInitializer, statement)) {
-                        statementsToRemove.add(statement);
-                        commonInitializerCandidate = commonInitializer;
-                      }
-                      else {
-                        return null;
-                      }
-                    }
-                  }
-                  else if (!PsiEquivalenceUtil.areElementsEquivalent(commonInitializerCandidate, statement)){
-                    return null;
-                  }
-                }
-              }
+    for (int i = 0; i < statements.length; i++) {
+      final PsiStatement statement = statements[i];
+      final PsiAssignmentExpression assignmentExpression = subConstructor.assignments.get(i).get(field);
+      if (assignmentExpression != null) {
+        if (commonInitializerCandidate == null) {
+          final PsiExpression initializer = assignmentExpression.getRExpression();
+          if (initializer == null) return null;
+          if (commonInitializer == null) {
+            final IsMovableInitializerVisitor visitor = new IsMovableInitializerVisitor();
+            statement.accept(visitor);
+            if (visitor.isMovable()) {
+              ChangeContextUtil.encodeContextInfo(statement, true);
+              PsiStatement statementCopy = (PsiStatement)statement.copy();
+              ChangeContextUtil.clearContextInfo(statement);
+              statementsToRemove.add(statement);
+              commonInitializerCandidate = statementCopy;
+            }
+            else {
+              return null;
+            }
+          }
+          else {
+            if (PsiEquivalenceUtil.areElementsEquivalent(commonInitializer, statement)) {
+              statementsToRemove.add(statement);
+              commonInitializerCandidate = commonInitializer;
+            }
+            else {
+              return null;
             }
           }
         }
-      }
-      if (doLookup) {
-        final PsiReference[] references =
-          ReferencesSearch.search(field, new LocalSearchScope(statement), false).toArray(new PsiReference[0]);
-        if (commonInitializerCandidate == null && references.length > 0) {
+        else if (!PsiEquivalenceUtil.areElementsEquivalent(commonInitializerCandidate, statement)){
           return null;
         }
-
-        for (PsiReference reference : references) {
-          if (RefactoringUtil.isAssignmentLHS(reference.getElement())) return null;
+      }
+      else {
+        final Boolean writeUsage = subConstructor.references.get(i).get(field);
+        if (writeUsage != null) { // the field is used in that statement
+          if (commonInitializerCandidate == null) return null;
+          if (writeUsage) return null;
         }
       }
     }
     return commonInitializerCandidate;
   }
 
-  private static void collectPsiStatements(PsiElement root, Set<PsiStatement> collected) {
-    if (root instanceof PsiStatement){
-      collected.add((PsiStatement)root);
-    }
+  /* The uses of the moved fields in the top-level statements of a sub-constructor, found in one walk over its body
+     (instead of a reference search for each field and each statement). For each statement :
+     - the fields which are the target of an assignment statement "f = ..." or "this.f = ..." (possibly nested), with the first such assignment ;
+     - the fields which are referenced, with true when one of the references is written. */
+  private static class SubConstructorIndex {
+    final PsiStatement[] statements; // null when the constructor has no body
+    final List<Map<PsiField, PsiAssignmentExpression>> assignments = new ArrayList<Map<PsiField, PsiAssignmentExpression>>();
+    final List<Map<PsiField, Boolean>> references = new ArrayList<Map<PsiField, Boolean>>();
+
+    SubConstructorIndex(PsiMethod subConstructor, final Set<PsiField> movedFields) {
+      final PsiCodeBlock body = subConstructor.getBody();
+      statements = body == null ? null : body.getStatements();
+      if (statements == null) return;
+
+      final Set<String> names = new HashSet<String>(); // only the references with these names are resolved
+      for (PsiField f : movedFields) names.add(f.getName());
+
+      for (PsiStatement statement : statements) {
+        final Map<PsiField, PsiAssignmentExpression> statementAssignments = new HashMap<PsiField, PsiAssignmentExpression>();
+        final Map<PsiField, Boolean> statementReferences = new HashMap<PsiField, Boolean>();
+        statement.accept(new JavaRecursiveElementWalkingVisitor() {
+          @Override
+          public void visitExpressionStatement(PsiExpressionStatement expressionStatement) {
+            final PsiExpression expression = expressionStatement.getExpression();
+            if (expression instanceof PsiAssignmentExpression) {
+              final PsiExpression lExpression = ((PsiAssignmentExpression)expression).getLExpression();
+              if (lExpression instanceof PsiReferenceExpression) {
+                final PsiReferenceExpression lRef = (PsiReferenceExpression)lExpression;
+                if ((lRef.getQualifierExpression() == null || lRef.getQualifierExpression() instanceof PsiThisExpression) &&
+                    names.contains(lRef.getReferenceName())) {
+                  final PsiElement resolved = lRef.resolve();
+                  if (movedFields.contains(resolved) && !statementAssignments.containsKey(resolved)) {
+                    statementAssignments.put((PsiField)resolved, (PsiAssignmentExpression)expression);
+                  }
+                }
+              }
+            }
+            super.visitExpressionStatement(expressionStatement);
+          }
 
-    for (PsiElement element : root.getChildren()) {
-      collectPsiStatements(element, collected);
+          @Override
+          public void visitReferenceExpression(PsiReferenceExpression expression) {
+            super.visitReferenceExpression(expression);
+            if (!names.contains(expression.getReferenceName())) return;
+            final PsiElement resolved = expression.resolve();
+            if (movedFields.contains(resolved)) {
+              final boolean written = RefactoringUtil.isAssignmentLHS(expression);
+              final Boolean previous = statementReferences.get(resolved);
+              statementReferences.put((PsiField)resolved, previous != null && previous || written);
+            }
+          }
+        });
+        assignments.add(statementAssignments);
+        references.add(statementReferences);
+      }
     }
   }
 
@@ -749,20 +834,28 @@ public class JavaPullUpGenHelper implements PullUpGenHelper<MemberInfo> {
   private HashMap<PsiMethod,HashSet<PsiMethod>> buildConstructorsToSubConstructorsMap(final PsiMethod[] constructors) {
     final HashMap<PsiMethod,HashSet<PsiMethod>> constructorsToSubConstructors = new HashMap<PsiMethod, HashSet<PsiMethod>>();
     for (PsiMethod constructor : constructors) {
-      final HashSet<PsiMethod> referencingSubConstructors = new HashSet<PsiMethod>();
-      constructorsToSubConstructors.put(constructor, referencingSubConstructors);
-      if (constructor != null) {
-        // find references
-        for (PsiReference reference : ReferencesSearch.search(constructor, new LocalSearchScope(mySourceClass), false)) {
-          final PsiElement element = reference.getElement();
-          if (element != null && "super".equals(element.getText())) {
-            PsiMethod parentMethod = PsiTreeUtil.getParentOfType(element, PsiMethod.class);
-            if (parentMethod != null && parentMethod.isConstructor()) {
-              referencingSubConstructors.add(parentMethod);
-            }
+      constructorsToSubConstructors.put(constructor, new HashSet<PsiMethod>());
+    }
+
+    // explicit super calls : one walk over the source class for all the constructors (instead of a reference search for each one)
+    mySourceClass.accept(new JavaRecursiveElementWalkingVisitor() {
+      @Override
+      public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+        super.visitMethodCallExpression(expression);
+        if (!"super".equals(expression.getMethodExpression().getText())) return;
+        final PsiMethod called = expression.resolveMethod();
+        final HashSet<PsiMethod> referencingSubConstructors = called == null ? null : constructorsToSubConstructors.get(called);
+        if (referencingSubConstructors != null) {
+          PsiMethod parentMethod = PsiTreeUtil.getParentOfType(expression, PsiMethod.class);
+          if (parentMethod != null && parentMethod.isConstructor()) {
+            referencingSubConstructors.add(parentMethod);
           }
         }
       }
+    });
+
+    for (PsiMethod constructor : constructors) {
+      final HashSet<PsiMethod> referencingSubConstructors = constructorsToSubConstructors.get(constructor);
 
       // check default constructor
       if (constructor == null || constructor.getParameterList().getParametersCount() == 0) {
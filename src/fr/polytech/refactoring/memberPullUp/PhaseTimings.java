@@ -0,0 +1,91 @@
+package fr.polytech.refactoring.memberPullUp;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Wall-clock times of the phases of one refactoring (one pull-up, or one extract superclass).
+ * A phase can run several times (once per pulled-up member) : all its samples are kept,
+ * and the summary gives their count, total, median and 95th percentile.
+ *
+ * Usage : long t = timings.start(); ... t = timings.lap("phase 1", t); ... t = timings.lap("phase 2", t);
+ */
+public class PhaseTimings {
+
+  private final Map<String, List<Long>> mySamples = new LinkedHashMap<String, List<Long>>(); // phases in order of first occurrence
+
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /** Records the time elapsed since the given start for that phase, and returns the current time (the start of the next phase). */
+  public long lap(String phase, long since) {
+    final long now = System.nanoTime();
+    record(phase, now - since);
+    return now;
+  }
+
+  public synchronized void record(String phase, long nanos) {
+    List<Long> samples = mySamples.get(phase);
+    if (samples == null) {
+      samples = new ArrayList<Long>();
+      mySamples.put(phase, samples);
+    }
+    samples.add(nanos);
+  }
+
+  public synchronized boolean isEmpty() {
+    return mySamples.isEmpty();
+  }
+
+  /** One line per phase : count, total, p50 and p95 (in ms). */
+  public synchronized String getSummary() {
+    final StringBuilder b = new StringBuilder();
+    for (Map.Entry<String, List<Long>> e : mySamples.entrySet()) {
+      final List<Long> sorted = new ArrayList<Long>(e.getValue());
+      Collections.sort(sorted);
+      long total = 0;
+      for (long s : sorted) total += s;
+      b.append(String.format("  %-32s n=%-4d total=%9.2fms p50=%8.2fms p95=%8.2fms%n",
+                             e.getKey(), sorted.size(), ms(total), ms(percentile(sorted, 50)), ms(percentile(sorted, 95))));
+    }
+    return b.toString();
+  }
+
+  public void log(Logger log, String title) {
+    if (isEmpty()) return;
+    log.info(title + " phase timings:\n" + getSummary());
+  }
+
+  /* nearest-rank percentile of a sorted non-empty list */
+  private static long percentile(List<Long> sorted, int p) {
+    final int rank = (int)Math.ceil(p / 100.0 * sorted.size());
+    return sorted.get(Math.max(rank, 1) - 1);
+  }
+
+  private static double ms(long nanos) {
+    return nanos / 1000000.0;
+  }
+}
@@ -0,0 +1,150 @@
+package fr.polytech.refactoring.memberPullUp;
+
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.refactoring.HelpID;
+import com.intellij.refactoring.RefactoringActionHandler;
+import com.intellij.refactoring.RefactoringBundle;
+import com.intellij.refactoring.ui.ConflictsDialog;
+import com.intellij.refactoring.util.CommonRefactoringUtil;
+import com.intellij.refactoring.util.DocCommentPolicy;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import com.intellij.util.containers.MultiMap;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * "Generify all" : pulls up with generics, in one refactoring (one write action, one undo step), all the methods
+ * of a class which have a compatible method in all the direct subclasses of its superclass.
+ *
+ * Invoked on a subclass, the target is its direct superclass ; invoked on an abstract class or an interface,
+ * the target is that class and the members are taken from its first direct subclass.
+ * The type parameters introduced are shared between the members (see JavaPullUpGenHelper.doMoveMethod).
+ * The conflicts are checked as in the dialog refactoring before the members are pulled up.
+ */
+public class PullUpGenAllHandler implements RefactoringActionHandler {
+  public static final String REFACTORING_NAME = "Pull Up All with Generics";
+
+  @Override
+  public void invoke(@NotNull Project project, Editor editor, PsiFile file, DataContext dataContext) {
+    final PsiElement element = file.findElementAt(editor.getCaretModel().getOffset());
+    PsiClass aClass = PsiTreeUtil.getParentOfType(element, PsiClass.class, false);
+    while (aClass instanceof PsiTypeParameter || aClass instanceof PsiAnonymousClass) { // not classes to pull members from
+      aClass = PsiTreeUtil.getParentOfType(aClass, PsiClass.class, true);
+    }
+    if (aClass == null) {
+      CommonRefactoringUtil.showErrorHint(project, editor, "The caret should be positioned inside a class", REFACTORING_NAME, HelpID.MEMBERS_PULL_UP);
+      return;
+    }
+    invoke(project, editor, aClass);
+  }
+
+  @Override
+  public void invoke(@NotNull Project project, @NotNull PsiElement[] elements, DataContext dataContext) {
+    if (elements.length != 1 || !(elements[0] instanceof PsiClass)) return;
+    invoke(project, dataContext != null ? CommonDataKeys.EDITOR.getData(dataContext) : null, (PsiClass)elements[0]);
+  }
+
+  private static void invoke(Project project, @Nullable Editor editor, PsiClass aClass) {
+    if (!CommonRefactoringUtil.checkReadOnlyStatus(project, aClass)) return;
+
+    final PsiClass superClass = isAbstract(aClass) ? aClass : findTargetSuperClass(aClass);
+    final CompatibilityMatrix matrix = superClass != null ? CompatibilityMatrix.forSuperClass(superClass) : null;
+    if (matrix == null || !isAbstract(superClass) || matrix.getSisterClasses().isEmpty()) {
+      CommonRefactoringUtil.showErrorHint(project, editor, "The class should be an abstract class or an interface with subclasses, or one of these subclasses",
+                                          REFACTORING_NAME, HelpID.MEMBERS_PULL_UP);
+      return;
+    }
+
+    final List<PsiClass> sisterClasses = matrix.getSisterClasses();
+    final PsiClass sourceClass = sisterClasses.contains(aClass) ? aClass : sisterClasses.get(0);
+    final List<MemberInfo> infos = findGenerifiableMembers(sourceClass, matrix);
+    if (infos.isEmpty()) {
+      CommonRefactoringUtil.showErrorHint(project, editor, "No method of " + sourceClass.getName() + " can be pulled up with generics into " + superClass.getName(),
+                                          REFACTORING_NAME, HelpID.MEMBERS_PULL_UP);
+      return;
+    }
+
+    if (Messages.showOkCancelDialog(project,
+                                    "Pull up " + infos.size() + " methods from " + sisterClasses.size() + " classes into " + superClass.getName() + "?",
+                                    REFACTORING_NAME, Messages.getQuestionIcon()) != Messages.OK) return;
+
+    final MemberInfo[] memberInfos = infos.toArray(new MemberInfo[infos.size()]);
+    if (!checkConflicts(project, memberInfos, sourceClass, superClass)) return;
+
+    new PullUpGenProcessor(sourceClass, sisterClasses, superClass, memberInfos, new DocCommentPolicy(DocCommentPolicy.ASIS), matrix).run();
+  }
+
+  /** The same check as before the dialog refactoring (JavaPullUpGenHandler.checkConflicts). */
+  private static boolean checkConflicts(Project project, final MemberInfo[] memberInfos, final PsiClass sourceClass, final PsiClass superClass) {
+    if (!CommonRefactoringUtil.checkReadOnlyStatus(project, superClass)) return false;
+    final MultiMap<PsiElement, String> conflicts = new MultiMap<PsiElement, String>();
+    if (!ProgressManager.getInstance().runProcessWithProgressSynchronously(new Runnable() {
+      @Override
+      public void run() {
+        ApplicationManager.getApplication().runReadAction(new Runnable() {
+          @Override
+          public void run() {
+            conflicts.putAllValues(JavaPullUpGenHandler.collectConflicts(memberInfos, sourceClass, superClass));
+          }
+        });
+      }
+    }, RefactoringBundle.message("detecting.possible.conflicts"), true, project)) return false;
+    return conflicts.isEmpty() || new ConflictsDialog(project, conflicts).showAndGet();
+  }
+
+  private static boolean isAbstract(PsiClass c) {
+    return c.isInterface() || c.hasModifierProperty(PsiModifier.ABSTRACT);
+  }
+
+  @Nullable
+  private static PsiClass findTargetSuperClass(PsiClass aClass) {
+    final PsiClass superClass = aClass.getSuperClass();
+    return superClass != null && superClass.getManager().isInProject(superClass) ? superClass : null;
+  }
+
+  /** The methods with a compatible method in all the sister classes (and which do not override a method) :
+   *  they can be pulled up together, from the same set of classes. */
+  static List<MemberInfo> findGenerifiableMembers(PsiClass sourceClass, CompatibilityMatrix matrix) {
+    final List<MemberInfo> result = new ArrayList<MemberInfo>();
+    for (PsiMethod m : sourceClass.getMethods()) {
+      if (m.isConstructor() || m.hasModifierProperty(PsiModifier.PRIVATE) || m.hasModifierProperty(PsiModifier.STATIC)) continue;
+      if (m.findSuperMethods().length > 0) continue; // toString, an interface method... : already declared above the class
+      final MemberInfo info = new MemberInfo(m);
+      if (matrix.canGenMember(info)) {
+        info.setChecked(true);
+        info.setToAbstract(true);
+        result.add(info);
+      }
+    }
+    return result;
+  }
+}
@@ -17,6 +17,7 @@ package fr.polytech.refactoring.memberPullUp;
 
 import com.intellij.psi.PsiClass;
 import com.intellij.refactoring.memberPullUp.PullUpData;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
 
 import java.util.Collection;
 
@@ -26,4 +27,8 @@ import java.util.Collection;
 public interface PullUpGenData extends PullUpData {
 
   Collection<PsiClass> getSisterClasses();
+
+  CompatibilityMatrix getCompatibilityMatrix();
+
+  PhaseTimings getPhaseTimings();
 }
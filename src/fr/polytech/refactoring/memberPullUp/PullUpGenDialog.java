@@ -31,7 +31,11 @@
 /* Up-to-date w.r.t. commit on 5  Dec 2014. */
 package fr.polytech.refactoring.memberPullUp;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.help.HelpManager;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.psi.*;
@@ -46,7 +50,7 @@ import com.intellij.refactoring.JavaRefactoringSettings;
 import com.intellij.refactoring.RefactoringBundle;
 import com.intellij.refactoring.classMembers.MemberInfoModel;
 import com.intellij.refactoring.classMembers.MemberInfoChange;
-import fr.polytech.refactoring.genUtils.SisterClassesUtil;
+import fr.polytech.refactoring.genUtils.SisterClassesScope;
 import com.intellij.refactoring.memberPullUp.PullUpDialogBase;
 import com.intellij.refactoring.ui.ClassCellRenderer;
 import com.intellij.refactoring.ui.DocCommentPanel;
@@ -56,7 +60,9 @@ import com.intellij.refactoring.util.classMembers.InterfaceContainmentVerifier;
 import com.intellij.refactoring.util.classMembers.MemberInfo;
 import com.intellij.refactoring.util.classMembers.MemberInfoStorage;
 import com.intellij.refactoring.util.classMembers.UsesAndInterfacesDependencyMemberInfoModel;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.UIUtil;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
 import fr.polytech.refactoring.ui.CustomMemberSelectionPanel;
 import fr.polytech.refactoring.ui.CustomMemberSelectionTable;
 import fr.polytech.refactoring.ui.ShortClassCellRenderer;
@@ -66,14 +72,15 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 import com.intellij.ui.SeparatorFactory;
 import com.intellij.ui.components.JBList;
 import com.intellij.usageView.UsageViewUtil;
 
-import java.util.Collection;
-
 /**
  * @author dsl
  * Date: 18.06.2002
@@ -96,6 +103,11 @@ public class PullUpGenDialog extends PullUpDialogBase<MemberInfoStorage, MemberI
   //Julien : to display the list of sister classes.
   JList mySisterClassList;
 
+  // incremented (in the event dispatch thread) each time the analyses are restarted
+  private int myAnalysisStamp = 0;
+  // result of the last completed analysis (null while computing)
+  private CompatibilityMatrix myCompatibilityMatrix = null;
+
   public interface Callback {
     boolean checkConflicts(PullUpGenDialog dialog);
   }
@@ -179,8 +191,7 @@ public class PullUpGenDialog extends PullUpDialogBase<MemberInfoStorage, MemberI
                 }
 
                 // Julien: Update sister classes and analyses
-                setSisterClassDisplay(); // Julien
-                fillAllAnalyses();       // Julien
+                fillAllAnalyses();       // Julien (the sister classes are displayed by the analyses)
                 myMemberSelectionPanel.repaint();
 
             }
@@ -209,7 +220,6 @@ public class PullUpGenDialog extends PullUpDialogBase<MemberInfoStorage, MemberI
             getCustomTable().fireExternalDataChange();
           }
           // Julien: Update sister classes and analyses
-          setSisterClassDisplay(); // Julien TODO : check that (already in createNorthPanel)
           fillAllAnalyses();       // Julien TODO : check that (already in createNorthPanel)
         }
       }
@@ -231,12 +241,26 @@ public class PullUpGenDialog extends PullUpDialogBase<MemberInfoStorage, MemberI
         mySisterClassList.setFixedCellWidth((int)(1.1 * panel.getFontMetrics(panel.getFont()).charsWidth(text.toCharArray(), 0, text.length())));
         sisgbConstraints.gridy++;   // increment the target position before adding
         panel.add(mySisterClassList, sisgbConstraints);
-        setSisterClassDisplay(); // cannot be done much earlier because myClassCombo must be initialized.
-    }
 
-    private void setSisterClassDisplay() {
-        Collection<PsiClass> mySisterClasses = SisterClassesUtil.findDirectSubClassesInDirectory(getSuperClass()); // getSuperClass can be invoked only after myClassCombo has been initialized.
-        mySisterClassList.setListData(mySisterClasses.toArray());
+        // where the sister classes are searched (the choice is kept for the next refactorings)
+        final JComboBox scopeCombo = new JComboBox(SisterClassesScope.values());
+        scopeCombo.setSelectedItem(SisterClassesScope.getCurrent());
+        scopeCombo.addItemListener(new ItemListener() {
+          public void itemStateChanged(ItemEvent e) {
+            if (e.getStateChange() == ItemEvent.SELECTED) {
+              SisterClassesScope.setCurrent((SisterClassesScope) e.getItem());
+              fillAllAnalyses(); // also searches the sister classes again, out of the event dispatch thread
+            }
+          }
+        });
+        final JPanel scopePanel = new JPanel(new BorderLayout(4, 0));
+        final JLabel scopeLabel = new JLabel("Search in:");
+        scopeLabel.setLabelFor(scopeCombo);
+        scopePanel.add(scopeLabel, BorderLayout.WEST);
+        scopePanel.add(scopeCombo, BorderLayout.CENTER);
+        sisgbConstraints.gridy++;
+        panel.add(scopePanel, sisgbConstraints);
+        // the sister classes are displayed by fillAllAnalyses (called once myClassCombo is initialized)
     }
 
 
@@ -276,8 +300,10 @@ public class PullUpGenDialog extends PullUpDialogBase<MemberInfoStorage, MemberI
     }
 
     List<MemberInfo> infos = getSelectedMemberInfos();
+    final CompatibilityMatrix matrix =
+      myCompatibilityMatrix != null && myCompatibilityMatrix.getTargetSuperClass() == superClass && myCompatibilityMatrix.isUpToDate() ? myCompatibilityMatrix : null;
     invokeRefactoring(new PullUpGenProcessor(myClass, superClass, infos.toArray(new MemberInfo[infos.size()]),
-                                               new DocCommentPolicy(getJavaDocPolicy())));
+                                               new DocCommentPolicy(getJavaDocPolicy()), matrix));
     close(OK_EXIT_CODE);
   }
 
@@ -433,11 +459,46 @@ public class PullUpGenDialog extends PullUpDialogBase<MemberInfoStorage, MemberI
     }
   }
 
+    /* The analyses are run in a non-blocking read action, out of the event dispatch thread.
+       The action is cancelled when a new one is submitted (coalesceBy) or when the dialog is closed (expireWith),
+       and it is restarted by the platform when a write action occurs.
+       The result of each member is published in the table as soon as it is computed,
+       and the sister classes found (which can take long with a large scope) are displayed when the analyses are finished. */
     void fillAllAnalyses() {
-        CustomMemberSelectionTable table = getCustomTable();
-        table.fillAllCanGenMembers(getSuperClass());
-        table.fillAllDirectAbstractPullupFields(getSuperClass());
-        table.fillAllCanMakeAbstractFields(); // J  (to be done in that order because of data dependancy)
+        final CustomMemberSelectionTable table = getCustomTable();
+        final PsiClass superClass = getSuperClass();
+        final List<MemberInfo> infos = new ArrayList<MemberInfo>(myMemberInfos);
+        final ModalityState modality = ModalityState.stateForComponent(table);
+        final int stamp = ++myAnalysisStamp;
+
+        myCompatibilityMatrix = null;
+        table.setAllAnalysesComputing();
+        if (mySisterClassList != null) mySisterClassList.setListData(new Object[0]);
+        if (superClass == null) return;
+
+        ReadAction.nonBlocking(new Callable<CompatibilityMatrix>() {
+            public CompatibilityMatrix call() {
+                final CompatibilityMatrix matrix = CompatibilityMatrix.forSuperClass(superClass);
+                for (final MemberInfo member : infos) {
+                    ProgressManager.checkCanceled();
+                    final boolean canGen = matrix.canGenMember(member);
+                    final boolean directAbstractPullup = matrix.canDirectAbstractPullupMember(member);
+                    ApplicationManager.getApplication().invokeLater(new Runnable() {
+                        public void run() {
+                            if (stamp == myAnalysisStamp) // results of an outdated analysis are dropped
+                                table.fillAnalysesForMember(member, canGen, directAbstractPullup);
+                        }
+                    }, modality);
+                }
+                return matrix;
+            }
+        }).finishOnUiThread(modality, new Consumer<CompatibilityMatrix>() {
+            public void accept(CompatibilityMatrix matrix) {
+                if (stamp != myAnalysisStamp) return;
+                myCompatibilityMatrix = matrix; // reused by the refactoring
+                mySisterClassList.setListData(matrix.getSisterClasses().toArray());
+            }
+        }).expireWith(getDisposable()).coalesceBy(this).submit(AppExecutorUtil.getAppExecutorService());
   }
 
 
@@ -0,0 +1,251 @@
+package fr.polytech.refactoring.memberPullUp;
+
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Factory;
+import com.intellij.openapi.util.Pair;
+import com.intellij.psi.*;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.refactoring.util.duplicates.DuplicatesFinder;
+import com.intellij.refactoring.util.duplicates.Match;
+import com.intellij.refactoring.util.duplicates.MethodDuplicatesHandler;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.usages.*;
+import com.intellij.util.PairProcessor;
+import com.intellij.util.Processor;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * The search of the duplicates of the pulled-up methods, in the files changed by a generic pull-up.
+ *
+ * Only the matches are computed in the background (DuplicatesFinder), file by file and method by method, in read actions
+ * which give way to the write actions : a search interrupted by a write action is done again, the searches already done are kept.
+ * The search can be cancelled and is stopped after PullUpGenProcessor.DUPLICATES_SEARCH_TIMEOUT_SECONDS.
+ *
+ * In the IDE, the matches are shown in a usage view (Find tool window) as they are found, and nothing is changed until
+ * the user asks for the replacement, which is done in one write command on the event dispatch thread.
+ * In batch mode, the matches are only reported in the log.
+ */
+class PullUpGenDuplicatesSearch {
+  private static final Logger LOG = Logger.getInstance(PullUpGenDuplicatesSearch.class);
+
+  private final Project myProject;
+  private final List<PsiMethod> myMethods;
+  private final List<PsiFile> myFiles;
+  private final Map<Usage, Pair<PsiMethod, Match>> myMatches = ContainerUtil.newConcurrentMap(); // filled by the search, read by the replacement
+
+  PullUpGenDuplicatesSearch(@NotNull Project project, @NotNull Collection<PsiMethod> methods, @NotNull Collection<PsiFile> files) {
+    myProject = project;
+    myMethods = new ArrayList<PsiMethod>(methods);
+    myFiles = new ArrayList<PsiFile>(files);
+  }
+
+  /** Shows the duplicates in a usage view as they are found, with an action to replace them. */
+  void showInUsageView(@NotNull final Runnable onFinished) {
+    final UsageViewPresentation presentation = new UsageViewPresentation();
+    presentation.setTabText(MethodDuplicatesHandler.REFACTORING_NAME);
+    presentation.setTargetsNodeText("Pulled-up methods");
+    presentation.setCodeUsagesString("Duplicates of the pulled-up methods");
+    presentation.setUsagesWord("duplicate");
+    presentation.setOpenInNewTab(true);
+
+    final List<UsageTarget> targets = new ArrayList<UsageTarget>();
+    for (PsiMethod m : myMethods) targets.add(new PsiElement2UsageTargetAdapter(m));
+
+    UsageViewManager.getInstance(myProject).searchAndShowUsages(targets.toArray(new UsageTarget[targets.size()]), new Factory<UsageSearcher>() {
+      @Override
+      public UsageSearcher create() {
+        return new UsageSearcher() {
+          @Override
+          public void generate(@NotNull final Processor<Usage> processor) {
+            collect(ProgressManager.getInstance().getProgressIndicator(), new PairProcessor<PsiMethod, Match>() {
+              @Override
+              public boolean process(PsiMethod method, Match match) {
+                final Usage usage = new UsageInfo2UsageAdapter(createUsageInfo(match));
+                myMatches.put(usage, Pair.create(method, match));
+                return processor.process(usage);
+              }
+            });
+          }
+        };
+      }
+    }, false, true, presentation, new UsageViewManager.UsageViewStateListener() {
+      @Override
+      public void usageViewCreated(@NotNull final UsageView usageView) {
+        usageView.addPerformOperationAction(new Runnable() {
+          @Override
+          public void run() {
+            replace(usageView);
+          }
+        }, MethodDuplicatesHandler.REFACTORING_NAME, "Cannot replace the duplicates", "Replace Duplicates", true);
+      }
+
+      @Override
+      public void findingUsagesFinished(UsageView usageView) {
+        onFinished.run();
+      }
+    });
+  }
+
+  /** Only logs the duplicates (batch mode : nothing is changed and no UI is shown). */
+  void report(@NotNull final Runnable onFinished) {
+    new Task.Backgroundable(myProject, MethodDuplicatesHandler.REFACTORING_NAME, true) {
+      @Override
+      public void run(@NotNull ProgressIndicator indicator) {
+        collect(indicator, new PairProcessor<PsiMethod, Match>() {
+          @Override
+          public boolean process(PsiMethod method, Match match) {
+            final PsiFile file = match.getMatchStart().getContainingFile();
+            LOG.info("Duplicate of " + method.getName() + " in " + (file != null ? file.getName() : "?") + " at offset " + match.getMatchStart().getTextOffset());
+            return true;
+          }
+        });
+      }
+
+      @Override
+      public void onFinished() {
+        onFinished.run();
+      }
+    }.queue();
+  }
+
+  /** Calls the consumer, in a read action, with each match found. Stops when cancelled (by the user or by the timeout). */
+  private void collect(@Nullable final ProgressIndicator indicator, @NotNull final PairProcessor<PsiMethod, Match> consumer) {
+    if (indicator == null) return;
+    final ScheduledFuture<?> timeout = AppExecutorUtil.getAppScheduledExecutorService().schedule(new Runnable() {
+      @Override
+      public void run() {
+        LOG.info("Duplicates search stopped after " + PullUpGenProcessor.DUPLICATES_SEARCH_TIMEOUT_SECONDS + "s");
+        indicator.cancel();
+      }
+    }, PullUpGenProcessor.DUPLICATES_SEARCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    try {
+      for (final PsiFile file : myFiles) {
+        for (final PsiMethod method : myMethods) {
+          final List<Match> found = new ArrayList<Match>();
+          while (!ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(new Runnable() {
+            @Override
+            public void run() {
+              found.clear();
+              found.addAll(findDuplicates(method, file));
+            }
+          }, new SensitiveProgressWrapper(indicator))) { // a write action only cancels this attempt
+            indicator.checkCanceled();
+            ProgressIndicatorUtils.yieldToPendingWriteActions();
+          }
+          final boolean[] goOn = {true};
+          ApplicationManager.getApplication().runReadAction(new Runnable() {
+            @Override
+            public void run() {
+              for (Match match : found) {
+                if (!isValid(match)) continue; // changed by a write action since it was found
+                if (!consumer.process(method, match)) {
+                  goOn[0] = false;
+                  return;
+                }
+              }
+            }
+          });
+          if (!goOn[0]) return;
+        }
+      }
+    }
+    finally {
+      timeout.cancel(false);
+    }
+  }
+
+  /** The matches which can be replaced by a call to the method : in a subclass of its class, and not in a static context for an instance method. */
+  @NotNull
+  private static List<Match> findDuplicates(PsiMethod method, PsiFile file) {
+    if (!method.isValid() || !file.isValid()) return Collections.emptyList();
+    final DuplicatesFinder finder = MethodDuplicatesHandler.createDuplicatesFinder(method);
+    if (finder == null) return Collections.emptyList();
+    final List<Match> result = new ArrayList<Match>();
+    for (Match match : finder.findDuplicates(file)) {
+      final PsiClass aClass = PsiTreeUtil.getParentOfType(match.getMatchStart(), PsiClass.class);
+      if (aClass == null || !InheritanceUtil.isInheritorOrSelf(aClass, method.getContainingClass(), true)) continue;
+      if (!method.hasModifierProperty(PsiModifier.STATIC) && PsiUtil.getEnclosingStaticElement(match.getMatchStart(), aClass) != null) continue;
+      result.add(match);
+    }
+    return result;
+  }
+
+  private static boolean isValid(Match match) {
+    return match.getMatchStart().isValid() && match.getMatchEnd().isValid();
+  }
+
+  private static UsageInfo createUsageInfo(Match match) {
+    final PsiElement start = match.getMatchStart();
+    final PsiElement end = match.getMatchEnd();
+    final PsiElement parent = PsiTreeUtil.findCommonParent(start, end);
+    final int offset = parent.getTextRange().getStartOffset();
+    return new UsageInfo(parent, start.getTextRange().getStartOffset() - offset, end.getTextRange().getEndOffset() - offset);
+  }
+
+  /** Replaces the duplicates which are not excluded in the usage view (called in the event dispatch thread, on the user's request). */
+  private void replace(@NotNull UsageView usageView) {
+    final Set<Usage> excluded = usageView.getExcludedUsages();
+    final List<Pair<PsiMethod, Match>> toReplace = new ArrayList<Pair<PsiMethod, Match>>();
+    for (Usage usage : usageView.getUsages()) {
+      final Pair<PsiMethod, Match> match = myMatches.get(usage);
+      if (match != null && !excluded.contains(usage)) toReplace.add(match);
+    }
+    WriteCommandAction.runWriteCommandAction(myProject, MethodDuplicatesHandler.REFACTORING_NAME, null, new Runnable() {
+      @Override
+      public void run() {
+        for (Pair<PsiMethod, Match> match : toReplace) replaceDuplicate(match.first, match.second);
+      }
+    });
+  }
+
+  /** Replaces the duplicate by a call to the method, with the matched expressions as arguments. */
+  private static void replaceDuplicate(PsiMethod method, Match match) {
+    if (!method.isValid() || !isValid(match)) return; // changed since the search
+    final StringBuilder call = new StringBuilder(method.getName()).append('(');
+    final PsiParameter[] parameters = method.getParameterList().getParameters();
+    for (int i = 0; i < parameters.length; i++) {
+      final List<PsiElement> values = match.getParameterValues(parameters[i]);
+      if (values == null || values.isEmpty()) return;
+      if (i > 0) call.append(", ");
+      call.append(values.get(0).getText());
+    }
+    call.append(')');
+    final PsiMethodCallExpression callExpression = (PsiMethodCallExpression)JavaPsiFacade.getElementFactory(method.getProject())
+      .createExpressionFromText(call.toString(), match.getMatchStart());
+    match.replace(method, callExpression, null);
+  }
+}
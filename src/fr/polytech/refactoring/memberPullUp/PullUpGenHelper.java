@@ -32,4 +32,7 @@ public interface PullUpGenHelper<T extends MemberInfoBase<? extends PsiMember>>
 
   Collection<PsiClass> getSisterClasses(MemberInfo[] infos) throws MemberNotImplemented, AmbiguousOverloading;
 
+  /** Called once all the members are moved : adds the @Override annotations collected during the moves. */
+  void addPendingOverrideAnnotations();
+
 }
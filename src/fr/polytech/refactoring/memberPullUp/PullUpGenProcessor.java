@@ -36,17 +36,17 @@
 
 package fr.polytech.refactoring.memberPullUp;
 
-import com.intellij.analysis.AnalysisScope;
 import com.intellij.lang.Language;
 import com.intellij.lang.findUsages.DescriptiveNameUtil;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
-import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.SearchRequestCollector;
+import com.intellij.psi.search.SearchSession;
 import com.intellij.psi.search.searches.ReferencesSearch;
 import com.intellij.psi.util.PsiUtil;
 import com.intellij.psi.util.TypeConversionUtil;
@@ -54,6 +54,7 @@ import com.intellij.refactoring.BaseRefactoringProcessor;
 import com.intellij.refactoring.RefactoringBundle;
 import com.intellij.refactoring.classMembers.MemberInfoBase;
 import fr.polytech.refactoring.genUtils.AmbiguousOverloading;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
 import fr.polytech.refactoring.genUtils.MemberNotImplemented;
 import com.intellij.refactoring.listeners.JavaRefactoringListenerManager;
 import com.intellij.refactoring.listeners.RefactoringEventData;
@@ -61,12 +62,11 @@ import com.intellij.refactoring.listeners.impl.JavaRefactoringListenerManagerImp
 import com.intellij.refactoring.util.DocCommentPolicy;
 import com.intellij.refactoring.util.RefactoringUIUtil;
 import com.intellij.refactoring.util.classMembers.MemberInfo;
-import com.intellij.refactoring.util.duplicates.MethodDuplicatesHandler;
 import com.intellij.usageView.UsageInfo;
 import com.intellij.usageView.UsageViewDescriptor;
 import com.intellij.util.Function;
 import com.intellij.util.IncorrectOperationException;
-import com.intellij.util.Query;
+import com.intellij.util.Processor;
 import com.intellij.util.containers.ContainerUtil;
 import fr.polytech.refactoring.genUtils.GenBuildUtils;
 import org.jetbrains.annotations.NotNull;
@@ -77,6 +77,7 @@ import java.util.*;
 
 public class PullUpGenProcessor extends BaseRefactoringProcessor implements PullUpGenData {
   private static final Logger LOG = Logger.getInstance(PullUpGenProcessor.class);
+  public static final int DUPLICATES_SEARCH_TIMEOUT_SECONDS = 60;
 
   private final PsiClass mySourceClass;
   private final PsiClass myTargetSuperClass;
@@ -87,8 +88,14 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
   private final Map<Language, PullUpGenHelper<MemberInfo>> myProcessors = ContainerUtil.newHashMap();
 
   private Collection<PsiClass> mySisterClasses ; //(J)
-
-  public PullUpGenProcessor(PsiClass sourceClass, Collection<PsiClass> sisterClasses, PsiClass targetSuperClass, MemberInfo[] membersToMove, DocCommentPolicy javaDocPolicy) {
+  private CompatibilityMatrix myCompatibilityMatrix; // built lazily when not given by the caller
+  private final PhaseTimings myPhaseTimings = new PhaseTimings(); // filled by this processor and its helpers, logged after the duplicates search
+  private boolean mySearchDuplicates = true; // disabled by default in batch mode (the duplicates are proposed in a non-modal UI)
+  private boolean myReportDuplicatesOnly = false; // in batch mode, the duplicates are only logged (no UI, no replacement)
+  @Nullable private Runnable myDuplicatesSearchFinished = null; // called when the duplicates search is finished (or cancelled)
+
+  public PullUpGenProcessor(PsiClass sourceClass, Collection<PsiClass> sisterClasses, PsiClass targetSuperClass, MemberInfo[] membersToMove, DocCommentPolicy javaDocPolicy,
+                            @Nullable CompatibilityMatrix compatibilityMatrix) {
     super(sourceClass.getProject());
     mySourceClass = sourceClass;
     myTargetSuperClass = targetSuperClass;
@@ -96,10 +103,20 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
     myJavaDocPolicy = javaDocPolicy;
     //myProcessor = getProcessor(membersToMove[0]); this was an error, you cannot use that now because all instance variables have not been initialized
     mySisterClasses = sisterClasses; //(J)
+    myCompatibilityMatrix = compatibilityMatrix;
+  }
+
+  public PullUpGenProcessor(PsiClass sourceClass, Collection<PsiClass> sisterClasses, PsiClass targetSuperClass, MemberInfo[] membersToMove, DocCommentPolicy javaDocPolicy) {
+    this(sourceClass, sisterClasses, targetSuperClass, membersToMove, javaDocPolicy, null);
+  }
+
+  public PullUpGenProcessor(PsiClass sourceClass, PsiClass targetSuperClass, MemberInfo[] membersToMove, DocCommentPolicy javaDocPolicy,
+                            @Nullable CompatibilityMatrix compatibilityMatrix) {
+    this(sourceClass, null, targetSuperClass, membersToMove, javaDocPolicy, compatibilityMatrix);
   }
 
   public PullUpGenProcessor(PsiClass sourceClass, PsiClass targetSuperClass, MemberInfo[] membersToMove, DocCommentPolicy javaDocPolicy) {
-    this(sourceClass, null, targetSuperClass, membersToMove, javaDocPolicy);
+    this(sourceClass, null, targetSuperClass, membersToMove, javaDocPolicy, null);
   }
 
   @Override
@@ -111,15 +128,25 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
   @Override
   @NotNull
   protected UsageInfo[] findUsages() {
-    final List<UsageInfo> result = new ArrayList<UsageInfo>();
+    // One search for all the static members : each candidate file is scanned once (and the files are processed in parallel).
+    final List<UsageInfo> result = Collections.synchronizedList(new ArrayList<UsageInfo>());
+    final Processor<PsiReference> collect = new Processor<PsiReference>() {
+      @Override
+      public boolean process(PsiReference reference) {
+        result.add(new UsageInfo(reference));
+        return true;
+      }
+    };
+    final SearchRequestCollector collector = new SearchRequestCollector(new SearchSession());
+    boolean hasStaticMember = false;
     for (MemberInfo memberInfo : myMembersToMove) {
       final PsiMember member = memberInfo.getMember();
       if (member.hasModifierProperty(PsiModifier.STATIC)) {
-        for (PsiReference reference : ReferencesSearch.search(member)) {
-          result.add(new UsageInfo(reference));
-        }
+        ReferencesSearch.searchOptimized(member, GlobalSearchScope.allScope(myProject), false, collector, collect);
+        hasStaticMember = true;
       }
     }
+    if (hasStaticMember) PsiSearchHelper.getInstance(myProject).processRequests(collector, collect);
     return result.isEmpty() ? UsageInfo.EMPTY_ARRAY : result.toArray(new UsageInfo[result.size()]);
   }
 
@@ -164,49 +191,68 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
       PullUpGenHelper processor = getProcessor(element);
       processor.updateUsage(element);
     }
-    ApplicationManager.getApplication().invokeLater(new Runnable() {
-      @Override
-      public void run() {
-        processMethodsDuplicates();
-      }
-    }, ModalityState.NON_MODAL, myProject.getDisposed());
+    if (mySearchDuplicates) {
+      ApplicationManager.getApplication().invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          processMethodsDuplicates();
+        }
+      }, ModalityState.NON_MODAL, myProject.getDisposed());
+    }
+    else {
+      myPhaseTimings.log(LOG, getCommandName()); // otherwise logged after the duplicates search
+    }
 
    }
    catch (MemberNotImplemented e) {throw new IncorrectOperationException(e.toString()) ;} // (J)
    catch (AmbiguousOverloading e) {throw new IncorrectOperationException(e.toString()) ;} // (J)
   }
 
+  /* The duplicates of the pulled-up methods are searched in the background, in the files of the sister classes and of the superclass
+     (the classes changed by the refactoring), see PullUpGenDuplicatesSearch.
+     In the IDE they are shown in a usage view and replaced on the user's request ; in batch mode they are only logged. */
   private void processMethodsDuplicates() {
-    ProgressManager.getInstance().runProcessWithProgressSynchronously(new Runnable() {
+    final long start = myPhaseTimings.start();
+    final Runnable finished = new Runnable() {
       @Override
       public void run() {
-        ApplicationManager.getApplication().runReadAction(new Runnable() {
-          @Override
-          public void run() {
-            if (!myTargetSuperClass.isValid()) return;
-            final Query<PsiClass> search = ClassInheritorsSearch.search(myTargetSuperClass);
-            final Set<VirtualFile> hierarchyFiles = new HashSet<VirtualFile>();
-            for (PsiClass aClass : search) {
-              final PsiFile containingFile = aClass.getContainingFile();
-              if (containingFile != null) {
-                final VirtualFile virtualFile = containingFile.getVirtualFile();
-                if (virtualFile != null) {
-                  hierarchyFiles.add(virtualFile);
-                }
-              }
-            }
-            final Set<PsiMember> methodsToSearchDuplicates = new HashSet<PsiMember>();
-            for (PsiMember psiMember : myMembersAfterMove) {
-              if (psiMember instanceof PsiMethod && psiMember.isValid() && ((PsiMethod)psiMember).getBody() != null) {
-                methodsToSearchDuplicates.add(psiMember);
-              }
-            }
-
-            MethodDuplicatesHandler.invokeOnScope(myProject, methodsToSearchDuplicates, new AnalysisScope(myProject, hierarchyFiles), true);
-          }
-        });
+        myPhaseTimings.lap("processMethodsDuplicates", start);
+        myPhaseTimings.log(LOG, getCommandName());
+        if (myDuplicatesSearchFinished != null) myDuplicatesSearchFinished.run();
+      }
+    };
+    final PullUpGenDuplicatesSearch search = createDuplicatesSearch();
+    if (search == null) finished.run();
+    else if (myReportDuplicatesOnly) search.report(finished);
+    else search.showInUsageView(finished);
+  }
+
+  @Nullable
+  private PullUpGenDuplicatesSearch createDuplicatesSearch() {
+    if (!myTargetSuperClass.isValid()) return null;
+    final List<PsiMethod> methodsToSearchDuplicates = new ArrayList<PsiMethod>();
+    for (PsiMember psiMember : myMembersAfterMove) {
+      if (psiMember instanceof PsiMethod && psiMember.isValid() && ((PsiMethod)psiMember).getBody() != null) {
+        methodsToSearchDuplicates.add((PsiMethod)psiMember);
+      }
+    }
+    if (methodsToSearchDuplicates.isEmpty()) return null;
+
+    final Set<PsiFile> changedFiles = new LinkedHashSet<PsiFile>();
+    addFileOf(myTargetSuperClass, changedFiles);
+    if (mySisterClasses != null) {
+      for (PsiClass aClass : mySisterClasses) {
+        if (aClass.isValid()) addFileOf(aClass, changedFiles);
       }
-    }, MethodDuplicatesHandler.REFACTORING_NAME, true, myProject);
+    }
+    return new PullUpGenDuplicatesSearch(myProject, methodsToSearchDuplicates, changedFiles);
+  }
+
+  private static void addFileOf(PsiClass aClass, Set<PsiFile> files) {
+    final PsiFile containingFile = aClass.getContainingFile();
+    if (containingFile != null) {
+      files.add(containingFile);
+    }
   }
 
   @Override
@@ -215,6 +261,16 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
   }
 
   public void moveMembersToBase() throws IncorrectOperationException, AmbiguousOverloading, MemberNotImplemented {
+    final long start = myPhaseTimings.start();
+    try {
+      doMoveMembersToBase();
+    }
+    finally {
+      myPhaseTimings.lap("moveMembersToBase", start);
+    }
+  }
+
+  private void doMoveMembersToBase() throws IncorrectOperationException, AmbiguousOverloading, MemberNotImplemented {
     myMovedMembers = ContainerUtil.newHashSet();
     myMembersAfterMove = ContainerUtil.newHashSet();
 
@@ -252,6 +308,9 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
     for (MemberInfo info : myMembersToMove) {
         getProcessor(info).move(info, substitutor);
     }
+    final long start = myPhaseTimings.start();
+    for (PullUpGenHelper<MemberInfo> helper : myProcessors.values()) helper.addPendingOverrideAnnotations();
+    myPhaseTimings.lap("addPendingOverrideAnnotations", start);
 
     for (PsiMember member : myMembersAfterMove) { // FIXME (initialized to empty? yes but filled in JavaPullUpGenHelper)
        getProcessor(member).postProcessMember(member);
@@ -335,7 +394,9 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
 
     if (movedFields.isEmpty()) return;
 
+    final long start = myPhaseTimings.start();
     getProcessor(myTargetSuperClass).moveFieldInitializations(movedFields);
+    myPhaseTimings.lap("moveFieldInitializations", start);
   }
 
   public static boolean checkedInterfacesContain(Collection<? extends MemberInfoBase<? extends PsiMember>> memberInfos, PsiMethod psiMethod) {
@@ -368,6 +429,32 @@ public class PullUpGenProcessor extends BaseRefactoringProcessor implements Pull
 
   public Collection<PsiClass> getSisterClasses() {return mySisterClasses ;}
 
+  public CompatibilityMatrix getCompatibilityMatrix() {
+    if (myCompatibilityMatrix == null) {
+      myCompatibilityMatrix = mySisterClasses != null ? new CompatibilityMatrix(myTargetSuperClass, mySisterClasses)
+                                                      : CompatibilityMatrix.forSuperClass(myTargetSuperClass);
+    }
+    return myCompatibilityMatrix;
+  }
+
+  public void setSearchDuplicates(boolean searchDuplicates) {
+    mySearchDuplicates = searchDuplicates;
+  }
+
+  public void setReportDuplicatesOnly(boolean reportOnly) {
+    myReportDuplicatesOnly = reportOnly;
+  }
+
+  /** Lets a caller wait for the duplicates search, which is run in a background task after the refactoring. */
+  public void setDuplicatesSearchFinished(@Nullable Runnable callback) {
+    myDuplicatesSearchFinished = callback;
+  }
+
+  @Override
+  public PhaseTimings getPhaseTimings() {
+    return myPhaseTimings;
+  }
+
   public static Set<PsiMember> convert(MemberInfo[] t){
     Set<PsiMember> s = new HashSet<PsiMember>();
     for (int i = 0 ; i< t.length ; i++ ) s.add(t[i].getMember());
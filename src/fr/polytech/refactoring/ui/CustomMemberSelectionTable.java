@@ -36,8 +36,10 @@ import com.intellij.ui.RowIcon;
 import com.intellij.ui.SimpleTextAttributes;
 
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -56,7 +58,8 @@ public class CustomMemberSelectionTable extends MemberSelectionTable {
   enum ThreeValue {
       YesGenerics {public String toString(){return "Yes (with generics)";}},
       YesPlain    {public String toString(){return "Yes (without generics)";}} ,
-      No}
+      No,
+      Computing   {public String toString(){return "computing...";}}}
 
   public CustomMemberSelectionTable(final List<MemberInfo> memberInfos, String abstractColumnHeader) {
     this(memberInfos, null, abstractColumnHeader);
@@ -71,6 +74,7 @@ public class CustomMemberSelectionTable extends MemberSelectionTable {
     directAbstractPullupCheckBoxes = new Boolean[nbLines];        // j
     canGenerifyCheckBoxes = new Boolean[nbLines];                 // j
     canMakeAbstractCheckBoxes = new ThreeValue[nbLines];          // j
+    Arrays.fill(canMakeAbstractCheckBoxes, ThreeValue.Computing); // filled by the analyses run from the dialog
     GenTableModel t = new GenTableModel (this); //julien
     setModel(t);                                // julien    (this is problematic)
 
@@ -118,8 +122,12 @@ public class CustomMemberSelectionTable extends MemberSelectionTable {
   /* Need to check the boxes (arrays) and the memberInfo */
 
   void fillCanGenMember(MemberInfo member, PsiClass selectedSuper){
+      fillCanGenMember(member, GenAnalysisUtils.computeCanGenMember(member, selectedSuper));
+  }
+
+  private void fillCanGenMember(MemberInfo member, boolean canGen){
 
-      if (GenAnalysisUtils.computeCanGenMember(member, selectedSuper)) {
+      if (canGen) {
               setCanGenerifyColumnValue(member, true);
       }
       else  {
@@ -159,6 +167,26 @@ public class CustomMemberSelectionTable extends MemberSelectionTable {
   }
 
 
+  /* --- Incremental filling (the analyses are computed outside the event dispatch thread) --- */
+
+  /* Marks every row as "computing" until its results are published with fillAnalysesForMember(). */
+  public void setAllAnalysesComputing(){
+      Arrays.fill(directAbstractPullupCheckBoxes, null);
+      Arrays.fill(canGenerifyCheckBoxes, null);
+      Arrays.fill(canMakeAbstractCheckBoxes, ThreeValue.Computing);
+      fireExternalDataChange();
+  }
+
+  /* Publishes the results computed for one member. Must be invoked in the event dispatch thread. */
+  public void fillAnalysesForMember(MemberInfo member, boolean canGen, boolean directAbstractPullup){
+      fillCanGenMember(member, canGen);
+      setDirectAbstractPullupColumnValue(member, directAbstractPullup);
+      fillCanMakeAbstractField(member); // to be done last because of data dependancy
+      final int row = getRowForMember(member);
+      ((AbstractTableModel) getModel()).fireTableRowsUpdated(row, row);
+  }
+
+
 
   //new
   int getRowForMember(MemberInfo memberInfo){
@@ -303,7 +331,8 @@ public class CustomMemberSelectionTable extends MemberSelectionTable {
                 case CHECKED_COLUMN:
                     final MemberInfo m = myTableCopy.myMemberInfos.get(rowIndex);
                     return (myTableCopy.myMemberInfoModel.isMemberEnabled(m))
-                            && myTableCopy.getCanMakeAbstractColumnValue(m) != ThreeValue.No; // todo: does that work?
+                            && myTableCopy.getCanMakeAbstractColumnValue(m) != ThreeValue.No // todo: does that work?
+                            && myTableCopy.getCanMakeAbstractColumnValue(m) != ThreeValue.Computing;
                 case ABSTRACT_COLUMN:
                     return myTableCopy.isAbstractColumnEditable(rowIndex);
 
@@ -385,7 +414,8 @@ public class CustomMemberSelectionTable extends MemberSelectionTable {
       }
       append((String)value, new SimpleTextAttributes(Font.PLAIN, c));
 
-      if (myTable.getCanMakeAbstractColumnValue(memberInfo)==ThreeValue.No) { // Julien
+      final ThreeValue canMakeAbstract = myTable.getCanMakeAbstractColumnValue(memberInfo);
+      if (canMakeAbstract==ThreeValue.No || canMakeAbstract==ThreeValue.Computing) { // Julien
           this.setForeground(JBColor.LIGHT_GRAY);                             // Julien
       }
     }
@@ -0,0 +1,118 @@
+package fr.polytech.refactoring.ui;
+
+import com.intellij.pom.Navigatable;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.Comparator;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Sortable table of the generification opportunities found by ScanGenerifiableHierarchiesAction.
+ * Rows are added while the scan runs (in the event dispatch thread) ; a double-click navigates to the method.
+ */
+public class GenerifiableHierarchiesPanel extends JPanel {
+
+    /** A method that can be pulled up with generics from all the sister classes of a superclass. */
+    public static class Row {
+        private final String mySuperClass;
+        private final String myMethod;
+        private final int mySisterClasses;
+        private final SmartPsiElementPointer<PsiMethod> myPointer;
+
+        public Row(String superClass, PsiMethod method, String methodText, int sisterClasses) {
+            mySuperClass = superClass;
+            myMethod = methodText;
+            mySisterClasses = sisterClasses;
+            myPointer = SmartPointerManager.getInstance(method.getProject()).createSmartPsiElementPointer(method);
+        }
+    }
+
+
+    private static final ColumnInfo<Row, String> SUPERCLASS_COLUMN = new ColumnInfo<Row, String>("Superclass") {
+        public String valueOf(Row row) { return row.mySuperClass; }
+
+        public Comparator<Row> getComparator() {
+            return new Comparator<Row>() {
+                public int compare(Row r1, Row r2) { return r1.mySuperClass.compareTo(r2.mySuperClass); }
+            };
+        }
+    };
+
+    private static final ColumnInfo<Row, String> METHOD_COLUMN = new ColumnInfo<Row, String>("Method") {
+        public String valueOf(Row row) { return row.myMethod; }
+
+        public Comparator<Row> getComparator() {
+            return new Comparator<Row>() {
+                public int compare(Row r1, Row r2) { return r1.myMethod.compareTo(r2.myMethod); }
+            };
+        }
+    };
+
+    private static final ColumnInfo<Row, Integer> SISTERS_COLUMN = new ColumnInfo<Row, Integer>("Sister classes") {
+        public Integer valueOf(Row row) { return row.mySisterClasses; }
+
+        public Comparator<Row> getComparator() {
+            return new Comparator<Row>() {
+                public int compare(Row r1, Row r2) { return r1.mySisterClasses - r2.mySisterClasses; }
+            };
+        }
+    };
+
+
+    private final ListTableModel<Row> myModel = new ListTableModel<Row>(SUPERCLASS_COLUMN, METHOD_COLUMN, SISTERS_COLUMN);
+    private final TableView<Row> myTable = new TableView<Row>(myModel);
+
+    public GenerifiableHierarchiesPanel() {
+        super(new BorderLayout());
+        myModel.setSortable(true);
+        add(ScrollPaneFactory.createScrollPane(myTable), BorderLayout.CENTER);
+
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                final Row row = myTable.getSelectedObject();
+                final PsiElement method = row == null ? null : row.myPointer.getElement();
+                if (!(method instanceof Navigatable) || !((Navigatable) method).canNavigate()) return false;
+                ((Navigatable) method).navigate(true);
+                return true;
+            }
+        }.installOn(myTable);
+    }
+
+    /** To be called in the event dispatch thread. */
+    public void addRow(@NotNull Row row) {
+        myModel.addRow(row);
+    }
+
+    public int getRowCount() {
+        return myModel.getRowCount();
+    }
+}
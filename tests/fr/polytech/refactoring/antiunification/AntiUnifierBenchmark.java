@@ -0,0 +1,144 @@
+package fr.polytech.refactoring.antiunification;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Timing of AntiUnifier.antiunify on synthetic profiles (plain main, no dependency needed : the engine does not use PSI).
+ *
+ * The profiles vary by the number of sister classes, the number of parameters and the nesting depth of the parameter types :
+ * at depth d, a parameter type is List<Map<String, t[]>> around the type of depth d-1, and the type of depth 0 is a class of its own
+ * in each sister class for the even positions (a fresh type variable is needed) and String for the odd positions (same type everywhere).
+ *
+ * Each operation anti-unifies one method with a new session (substitution, anti-unifier, bound names), as a pull-up of one method does.
+ * The time and the allocated bytes (when the JVM can measure them) are given per operation and per sister class :
+ * if the time per class stays flat when the number of classes grows, the anti-unification is linear in the number of sister classes.
+ *
+ * Usage : java fr.polytech.refactoring.antiunification.AntiUnifierBenchmark [classes...]
+ *   (default : 2 20 200 2000 classes, for 0, 5 and 20 parameters and depths 0, 1 and 3).
+ */
+public class AntiUnifierBenchmark {
+
+    private static final int[] CLASSES = {2, 20, 200, 2000};
+    private static final int[] ARITIES = {0, 5, 20};
+    private static final int[] DEPTHS = {0, 1, 3};
+    private static final long WARMUP_NANOS = 300000000L;
+    private static final long MEASURE_NANOS = 1000000000L;
+
+    private static volatile int sink; // keeps the results alive
+
+
+    public static void main(String[] args) {
+        int[] classes = CLASSES;
+        if (args.length > 0) {
+            classes = new int[args.length];
+            for (int i = 0; i < args.length; i++) classes[i] = Integer.parseInt(args[i]);
+        }
+
+        final TermFactory factory = new TermFactory();
+        System.out.println(String.format("%8s %6s %6s %14s %14s %14s %14s", "classes", "arity", "depth", "ops/s", "ns/op", "ns/op/class", "bytes/op"));
+        for (int depth : DEPTHS) {
+            for (int arity : ARITIES) {
+                for (int nbClasses : classes) {
+                    final Result r = measure(factory, nbClasses, arity, depth);
+                    System.out.println(String.format("%8d %6d %6d %14.0f %14.0f %14.1f %14s", nbClasses, arity, depth,
+                            1e9 / r.nanosPerOp, r.nanosPerOp, r.nanosPerOp / nbClasses, r.bytesPerOp < 0 ? "n/a" : String.valueOf(r.bytesPerOp)));
+                }
+            }
+        }
+    }
+
+
+    private static class Result {
+        final double nanosPerOp;
+        final long bytesPerOp; // -1 when the JVM cannot measure the allocations of a thread
+
+        Result(double nanosPerOp, long bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    private static Result measure(TermFactory factory, int nbClasses, int arity, int depth) {
+        final List<String> classes = new ArrayList<String>(nbClasses);
+        for (int k = 0; k < nbClasses; k++) classes.add("C" + k);
+        final TypeTerm[][] profiles = profiles(factory, nbClasses, arity, depth);
+
+        run(factory, classes, profiles, WARMUP_NANOS);
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final long bytesBefore = allocatedBytes(threads);
+        final long start = System.nanoTime();
+        final long ops = run(factory, classes, profiles, MEASURE_NANOS);
+        final long elapsed = System.nanoTime() - start;
+        final long bytesAfter = allocatedBytes(threads);
+
+        return new Result((double) elapsed / ops, bytesBefore < 0 || bytesAfter < 0 ? -1 : (bytesAfter - bytesBefore) / ops);
+    }
+
+    /** Runs the operation for (at least) the given time, returns the number of operations. */
+    private static long run(TermFactory factory, List<String> classes, TypeTerm[][] profiles, long nanos) {
+        final long end = System.nanoTime() + nanos;
+        long ops = 0;
+        int h = 0;
+        do {
+            for (int i = 0; i < 16; i++) { // checks the clock every 16 operations
+                final TermDependentSubstitution<String> substitution = new TermDependentSubstitution<String>(classes);
+                final TermSubstitution result = new AntiUnifier<String>(factory, substitution, new HashSet<String>()).antiunify(profiles, "m");
+                h += result.get(-1).hashCode() + substitution.size();
+            }
+            ops += 16;
+        } while (System.nanoTime() < end);
+        sink = h;
+        return ops;
+    }
+
+    /** The profile (return type then parameter types) of the method in each class. */
+    private static TypeTerm[][] profiles(TermFactory factory, int nbClasses, int arity, int depth) {
+        final TypeTerm string = factory.classType("java.lang.String");
+        final TypeTerm[][] profiles = new TypeTerm[nbClasses][arity + 1];
+        for (int k = 0; k < nbClasses; k++) {
+            final TypeTerm own = factory.classType("C" + k);
+            for (int i = 0; i <= arity; i++) {
+                profiles[k][i] = nest(factory, i % 2 == 0 ? own : string, depth);
+            }
+        }
+        return profiles;
+    }
+
+    /** List<Map<String, t[]>>, depth times around t. */
+    private static TypeTerm nest(TermFactory factory, TypeTerm t, int depth) {
+        final TypeTerm string = factory.classType("java.lang.String");
+        for (int d = 0; d < depth; d++) {
+            t = factory.classType("java.util.List", factory.classType("java.util.Map", string, factory.array(t)));
+        }
+        return t;
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+        if (!sunThreads.isThreadAllocatedMemorySupported() || !sunThreads.isThreadAllocatedMemoryEnabled()) return -1;
+        return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
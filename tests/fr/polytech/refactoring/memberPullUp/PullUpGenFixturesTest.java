@@ -0,0 +1,317 @@
+package fr.polytech.refactoring.memberPullUp;
+
+import com.google.gson.GsonBuilder;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.refactoring.util.DocCommentPolicy;
+import com.intellij.refactoring.util.RefactoringHierarchyUtil;
+import com.intellij.refactoring.util.classMembers.MemberInfo;
+import com.intellij.refactoring.util.classMembers.MemberInfoStorage;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import fr.polytech.refactoring.genUtils.CompatibilityMatrix;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copyright 2026 Université de Nantes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Runs the refactoring on every case of tests/testPullUpGen and compares the result with the accepted ones
+ * (expectedresult, possibleresult, possibleresult1...).
+ *
+ * The members are pulled up from A into its direct superclass (or its first interface), as described
+ * by the "Test : pull up ..." comment of A : "m" (all the methods named m), "m and n" (one refactoring),
+ * "m, then n" (two refactorings), "all" (Pull Up All with Generics). See STEPS for the cases with another description.
+ * The comparison ignores the whitespace, the comments, the package statement and the names of the type parameters
+ * (the accepted results were written with other fresh names than T&lt;method&gt;&lt;position&gt;).
+ *
+ * The status, the wall time and the number of PSI modifications of each case are written to a JSON report
+ * (the pullupgen.fixtures.report system property, pullupgen-fixtures.json in the temporary directory by default).
+ * The test fails when a case with an accepted result gives another result ; the cases without accepted result are only reported.
+ */
+public class PullUpGenFixturesTest extends LightJavaCodeInsightFixtureTestCase {
+  private static final String CASES_DIR = "testPullUpGen";
+  private static final Pattern TEST_COMMENT = Pattern.compile("Test\\s*:\\s*pull up\\s+(.*)", Pattern.CASE_INSENSITIVE);
+  private static final String ALL = "*";
+
+  /* The cases whose comment does not describe the pulled-up members (the implements clause is pulled up). */
+  private static final Map<String, String> STEPS = new HashMap<String, String>();
+  static {
+    STEPS.put("test39", "I");
+    STEPS.put("test40", "I");
+    STEPS.put("test40b", "I");
+    STEPS.put("test40c", "I");
+  }
+
+  /** One line of the report. */
+  static class CaseResult {
+    final String name;
+    String status;
+    String acceptedResult;
+    String message;
+    long millis;
+    long psiModifications;
+
+    CaseResult(String name) {
+      this.name = name;
+    }
+  }
+
+  @NotNull
+  @Override
+  protected LightProjectDescriptor getProjectDescriptor() {
+    return JAVA_8;
+  }
+
+  @Override
+  protected String getTestDataPath() {
+    return new File(System.getProperty("pullupgen.testdata", "tests")).getAbsolutePath();
+  }
+
+  public void testAllCases() throws IOException {
+    final File[] caseDirs = new File(getTestDataPath(), CASES_DIR).listFiles();
+    assertNotNull("No test data in " + getTestDataPath(), caseDirs);
+    Arrays.sort(caseDirs);
+
+    final List<CaseResult> results = new ArrayList<CaseResult>();
+    final List<String> failures = new ArrayList<String>();
+    for (File caseDir : caseDirs) {
+      if (!caseDir.isDirectory()) continue;
+      final CaseResult result = runCase(caseDir);
+      if (result == null) continue;
+      results.add(result);
+      if (result.acceptedResult != null && !"passed".equals(result.status)) failures.add(result.name + " (" + result.status + ")");
+    }
+
+    final File report = new File(System.getProperty("pullupgen.fixtures.report",
+                                                    new File(FileUtil.getTempDirectory(), "pullupgen-fixtures.json").getPath()));
+    FileUtil.writeToFile(report, new GsonBuilder().setPrettyPrinting().create().toJson(results));
+    System.out.println("Fixture report : " + report.getPath());
+
+    assertTrue("Cases with an unexpected result : " + StringUtil.join(failures, ", "), failures.isEmpty());
+  }
+
+
+  /* ------ One case ------ */
+
+  @Nullable
+  private CaseResult runCase(File caseDir) {
+    final String name = caseDir.getName();
+    // the sources are in test/ (or directly in the case directory for the "test" case)
+    final String sourcePath = new File(caseDir, "test").isDirectory() ? CASES_DIR + "/" + name + "/test" : CASES_DIR + "/" + name;
+    final File sourceA = new File(getTestDataPath(), sourcePath + "/A.java");
+    if (!sourceA.isFile()) return null;
+
+    final CaseResult result = new CaseResult(name);
+    final List<File> accepted = findAcceptedResults(caseDir);
+    try {
+      final List<List<String>> steps = parseSteps(STEPS.containsKey(name) ? STEPS.get(name) : readTestComment(sourceA));
+      if (steps.isEmpty()) {
+        result.status = "no test comment";
+        return result;
+      }
+      myFixture.copyDirectoryToProject(sourcePath, sourcePath);
+      final String packageName = sourcePath.replace('/', '.');
+
+      final PsiModificationTracker tracker = PsiModificationTracker.getInstance(getProject());
+      final long modifications = tracker.getModificationCount();
+      final long start = System.nanoTime();
+      for (List<String> step : steps) {
+        pullUp(myFixture.findClass(packageName + ".A"), step);
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+      }
+      result.millis = (System.nanoTime() - start) / 1000000;
+      result.psiModifications = tracker.getModificationCount() - modifications;
+
+      if (accepted.isEmpty()) {
+        result.status = "not checked";
+        return result;
+      }
+      result.status = "mismatch";
+      for (File acceptedDir : accepted) {
+        final String difference = compare(acceptedDir, packageName);
+        if (difference == null) {
+          result.status = "passed";
+          result.acceptedResult = acceptedDir.getName();
+          return result;
+        }
+        result.acceptedResult = acceptedDir.getName();
+        result.message = difference;
+      }
+    }
+    catch (Throwable e) { // also the refactorings which fail on purpose (cases without accepted result)
+      result.status = "error";
+      result.message = e.toString();
+      if (!accepted.isEmpty()) result.acceptedResult = accepted.get(0).getName();
+    }
+    return result;
+  }
+
+  private static List<File> findAcceptedResults(File caseDir) {
+    final List<File> result = new ArrayList<File>();
+    final File[] dirs = caseDir.listFiles();
+    if (dirs == null) return result;
+    Arrays.sort(dirs);
+    for (File dir : dirs) {
+      if (dir.isDirectory() && (dir.getName().equals("expectedresult") || dir.getName().startsWith("possibleresult"))) result.add(dir);
+    }
+    return result;
+  }
+
+  private static String readTestComment(File sourceA) throws IOException {
+    final Matcher matcher = TEST_COMMENT.matcher(FileUtil.loadFile(sourceA));
+    return matcher.find() ? matcher.group(1) : "";
+  }
+
+  /** "m, then n" gives two steps, "add(Integer) and add(Integer, Integer) (remark)" gives one step with add, "all ..." gives the step ALL. */
+  static List<List<String>> parseSteps(String description) {
+    final List<List<String>> steps = new ArrayList<List<String>>();
+    if (StringUtil.toLowerCase(description.trim()).startsWith("all")) {
+      steps.add(Collections.singletonList(ALL));
+      return steps;
+    }
+    for (String stepText : description.split(",\\s*then\\s+")) {
+      for (String end : new String[]{" (", " :", " \""}) {
+        final int i = stepText.indexOf(end);
+        if (i >= 0) stepText = stepText.substring(0, i);
+      }
+      final List<String> names = new ArrayList<String>();
+      for (String member : stepText.split("\\s+and\\s+")) {
+        final int parenthesis = member.indexOf('(');
+        final String memberName = (parenthesis >= 0 ? member.substring(0, parenthesis) : member).trim();
+        if (!memberName.isEmpty() && !names.contains(memberName)) names.add(memberName);
+      }
+      if (!names.isEmpty()) steps.add(names);
+    }
+    return steps;
+  }
+
+  /** Pulls up the members with the given names (all the overloads of a method) as the dialog does, without the dialog. */
+  private void pullUp(PsiClass sourceClass, List<String> memberNames) {
+    final PsiClass targetClass = findTargetClass(sourceClass);
+    assertNotNull("No superclass for " + sourceClass.getName(), targetClass);
+
+    final List<MemberInfo> selected = new ArrayList<MemberInfo>();
+    if (memberNames.contains(ALL)) {
+      selected.addAll(PullUpGenAllHandler.findGenerifiableMembers(sourceClass, CompatibilityMatrix.forSuperClass(targetClass)));
+    }
+    else {
+      final MemberInfoStorage storage = new MemberInfoStorage(sourceClass, new MemberInfo.Filter<PsiMember>() {
+        @Override
+        public boolean includeMember(PsiMember element) {
+          return true;
+        }
+      });
+      for (MemberInfo info : storage.getClassMemberInfos(sourceClass)) {
+        if (memberNames.contains(info.getMember().getName())) {
+          info.setChecked(true);
+          info.setToAbstract(true);
+          selected.add(info);
+        }
+      }
+    }
+    assertFalse("No member " + memberNames + " in " + sourceClass.getName(), selected.isEmpty());
+
+    final PullUpGenProcessor processor = new PullUpGenProcessor(sourceClass, targetClass, selected.toArray(new MemberInfo[selected.size()]),
+                                                                new DocCommentPolicy(DocCommentPolicy.ASIS));
+    processor.setPreviewUsages(false);
+    processor.setSearchDuplicates(false);
+    processor.run();
+  }
+
+  /** The direct superclass when it is in the project, otherwise the first interface (as proposed first by the dialog). */
+  @Nullable
+  private static PsiClass findTargetClass(PsiClass sourceClass) {
+    final List<PsiClass> bases = RefactoringHierarchyUtil.createBasesList(sourceClass, false, true);
+    final PsiClass superClass = sourceClass.getSuperClass();
+    if (superClass != null && bases.contains(superClass)) return superClass;
+    return bases.isEmpty() ? null : bases.get(0);
+  }
+
+
+  /* ------ Comparison ------ */
+
+  /** Returns null when all the files of the accepted result are matched, otherwise the first difference. */
+  @Nullable
+  private String compare(File acceptedDir, String packageName) throws IOException {
+    final Map<String, String> renaming = new HashMap<String, String>();        // type parameters : accepted -> actual
+    final Map<String, String> reverseRenaming = new HashMap<String, String>(); // actual -> accepted
+    final File[] files = acceptedDir.listFiles();
+    if (files == null) return "empty accepted result";
+    Arrays.sort(files);
+    for (File file : files) {
+      if (!file.getName().endsWith(".java")) continue;
+      final PsiClass actualClass = myFixture.findClass(packageName + "." + FileUtil.getNameWithoutExtension(file));
+      if (actualClass == null) return file.getName() + " : no such class in the result";
+      final PsiFile expected = PsiFileFactory.getInstance(getProject())
+        .createFileFromText(file.getName(), JavaFileType.INSTANCE, StringUtil.convertLineSeparators(FileUtil.loadFile(file)));
+      final String difference = compareTokens(tokens(expected), tokens(actualClass.getContainingFile()),
+                                              typeParameterNames(expected), typeParameterNames(actualClass.getContainingFile()),
+                                              renaming, reverseRenaming);
+      if (difference != null) return file.getName() + " : " + difference;
+    }
+    return null;
+  }
+
+  /** The leaves of the file, without the whitespace, the comments and the package statement. */
+  private static List<PsiElement> tokens(PsiFile file) {
+    final List<PsiElement> result = new ArrayList<PsiElement>();
+    for (PsiElement leaf = PsiTreeUtil.firstChild(file); leaf != null; leaf = PsiTreeUtil.nextLeaf(leaf)) {
+      if (leaf instanceof PsiWhiteSpace || leaf instanceof PsiComment || leaf.getTextLength() == 0) continue;
+      if (PsiTreeUtil.getParentOfType(leaf, PsiPackageStatement.class) != null) continue;
+      result.add(leaf);
+    }
+    return result;
+  }
+
+  private static Set<String> typeParameterNames(PsiFile file) {
+    final Set<String> result = new HashSet<String>();
+    for (PsiTypeParameter p : PsiTreeUtil.findChildrenOfType(file, PsiTypeParameter.class)) result.add(p.getName());
+    return result;
+  }
+
+  @Nullable
+  private static String compareTokens(List<PsiElement> expected, List<PsiElement> actual, Set<String> expectedTypeParameters,
+                                      Set<String> actualTypeParameters, Map<String, String> renaming, Map<String, String> reverseRenaming) {
+    for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+      final String e = expected.get(i).getText();
+      final String a = actual.get(i).getText();
+      if (expectedTypeParameters.contains(e) && actualTypeParameters.contains(a)) { // equal up to a consistent renaming
+        if (!renaming.containsKey(e) && !reverseRenaming.containsKey(a)) {
+          renaming.put(e, a);
+          reverseRenaming.put(a, e);
+        }
+        if (a.equals(renaming.get(e)) && e.equals(reverseRenaming.get(a))) continue;
+      }
+      else if (e.equals(a)) continue;
+      return "expected '" + e + "' but found '" + a + "' at offset " + actual.get(i).getTextOffset();
+    }
+    if (expected.size() != actual.size()) return "expected " + expected.size() + " tokens but found " + actual.size();
+    return null;
+  }
+}
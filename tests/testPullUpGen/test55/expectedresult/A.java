@@ -0,0 +1,14 @@
+package testPullUpGen.test55.expectedresult;
+
+/**
+ * Test : Pull Up All with Generics (from A or S) : put, get and contains are pulled up together,
+ * with the same instantiations (Integer in A, String in B) : only one type parameter is introduced.
+ */
+public class A extends S<Integer> {
+    @Override
+    void put(Integer x){ }
+    @Override
+    Integer get(){ return 0; }
+    @Override
+    boolean contains(Integer x){ return false; }
+}
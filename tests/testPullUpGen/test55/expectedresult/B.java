@@ -0,0 +1,10 @@
+package testPullUpGen.test55.expectedresult;
+
+public class B extends S<String> {
+    @Override
+    void put(String x){ }
+    @Override
+    String get(){ return ""; }
+    @Override
+    boolean contains(String x){ return false; }
+}
@@ -0,0 +1,9 @@
+package testPullUpGen.test55.expectedresult;
+
+public abstract class S<Tput0> {
+    abstract void put(Tput0 x);
+
+    abstract Tput0 get();
+
+    abstract boolean contains(Tput0 x);
+}
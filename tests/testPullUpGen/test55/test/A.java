@@ -0,0 +1,11 @@
+package testPullUpGen.test55.test;
+
+/**
+ * Test : Pull Up All with Generics (from A or S) : put, get and contains are pulled up together,
+ * with the same instantiations (Integer in A, String in B) : only one type parameter is introduced.
+ */
+public class A extends S {
+    void put(Integer x){ }
+    Integer get(){ return 0; }
+    boolean contains(Integer x){ return false; }
+}
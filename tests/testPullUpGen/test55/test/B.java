@@ -0,0 +1,7 @@
+package testPullUpGen.test55.test;
+
+public class B extends S {
+    void put(String x){ }
+    String get(){ return ""; }
+    boolean contains(String x){ return false; }
+}
@@ -0,0 +1,4 @@
+package testPullUpGen.test55.test;
+
+public abstract class S {
+}
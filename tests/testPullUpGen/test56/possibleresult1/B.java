@@ -0,0 +1,8 @@
+package testPullUpGen.test56.possibleresult1;
+
+public class B extends S<String> {
+    @Override
+    void add(String x){ }
+    @Override
+    void add(String x, String y){ }
+}
@@ -0,0 +1,7 @@
+package testPullUpGen.test56.possibleresult1;
+
+public abstract class S<Tadd0> {
+    abstract void add(Tadd0 x);
+
+    abstract void add(Tadd0 x, Tadd0 y);
+}
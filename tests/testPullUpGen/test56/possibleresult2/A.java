@@ -0,0 +1,13 @@
+package testPullUpGen.test56.possibleresult2;
+
+/**
+ * Test : pull up add(Integer) and add(Integer, Integer) (both selected, in one refactoring).
+ * The two overloads have the same instantiations (Integer in A, String in B) : only one type parameter is introduced
+ * (it used to be a known bug : a same type parameter could be introduced twice).
+ */
+public class A extends S<Integer> {
+    @Override
+    void add(Integer x){ }
+    @Override
+    void add(Integer x, Integer y){ }
+}
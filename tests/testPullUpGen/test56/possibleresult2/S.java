@@ -0,0 +1,7 @@
+package testPullUpGen.test56.possibleresult2;
+
+public abstract class S<Tadd0> {
+    abstract void add(Tadd0 x, Tadd0 y);
+
+    abstract void add(Tadd0 x);
+}
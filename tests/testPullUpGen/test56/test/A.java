@@ -0,0 +1,11 @@
+package testPullUpGen.test56.test;
+
+/**
+ * Test : pull up add(Integer) and add(Integer, Integer) (both selected, in one refactoring).
+ * The two overloads have the same instantiations (Integer in A, String in B) : only one type parameter is introduced
+ * (it used to be a known bug : a same type parameter could be introduced twice).
+ */
+public class A extends S {
+    void add(Integer x){ }
+    void add(Integer x, Integer y){ }
+}
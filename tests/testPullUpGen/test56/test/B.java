@@ -0,0 +1,6 @@
+package testPullUpGen.test56.test;
+
+public class B extends S {
+    void add(String x){ }
+    void add(String x, String y){ }
+}
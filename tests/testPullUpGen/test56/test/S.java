@@ -0,0 +1,4 @@
+package testPullUpGen.test56.test;
+
+public abstract class S {
+}